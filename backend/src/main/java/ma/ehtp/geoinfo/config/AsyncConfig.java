@@ -0,0 +1,79 @@
+package ma.ehtp.geoinfo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration des exécuteurs de tâches en arrière-plan
+ */
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Exécuteur du calcul des snapshots de dashboards
+     * Peu de threads : un calcul par rôle/secteur à la fois (requêtes coalescées)
+     */
+    @Bean(name = "dashboardExecutor")
+    public ThreadPoolTaskExecutor dashboardExecutor(
+            @Value("${dashboard.executor.threads:2}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("dashboard-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Exécuteur des jobs de reprise de données déclenchés par un administrateur
+     * Un seul job à la fois : le parallélisme est géré par le job lui-même
+     */
+    @Bean(name = "repriseExecutor")
+    public ThreadPoolTaskExecutor repriseExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("reprise-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Exécuteur du nettoyage des photos orphelines
+     * Le balayage à débit limité dure longtemps : hors du thread unique du
+     * planificateur (@Scheduled), qu'il bloquerait. Sans file : un passage
+     * encore en cours fait ignorer le suivant.
+     */
+    @Bean(name = "nettoyageExecutor")
+    public ThreadPoolTaskExecutor nettoyageExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("nettoyage-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Exécuteur de génération des variantes d'images (miniature, version web)
+     * Borné : le décodage d'une photo coûte plusieurs dizaines de Mo de mémoire,
+     * les tâches au-delà de la file sont refusées (photo servie en original)
+     */
+    @Bean(name = "imageExecutor")
+    public ThreadPoolTaskExecutor imageExecutor(
+            @Value("${images.executor.threads:2}") int threads,
+            @Value("${images.executor.file:200}") int file) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(file);
+        executor.setThreadNamePrefix("image-");
+        executor.initialize();
+        return executor;
+    }
+}
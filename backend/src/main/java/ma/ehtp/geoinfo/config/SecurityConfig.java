@@ -110,10 +110,13 @@ public class SecurityConfig {
                         .requestMatchers("/api/incidents").permitAll()
                         .requestMatchers("/api/incidents/by-email/**").permitAll() // Email recovery
                         .requestMatchers("/api/incidents/carte").permitAll()
+                        .requestMatchers("/api/incidents/clusters").permitAll()
+                        .requestMatchers("/api/incidents/heatmap").permitAll()
                         .requestMatchers("/api/incidents/stats").permitAll()
                         .requestMatchers("/api/statistiques").permitAll() // Homepage stats
                         .requestMatchers("/api/secteurs/**").permitAll()
                         .requestMatchers("/api/provinces/**").permitAll()
+                        .requestMatchers("/api/tiles/**").permitAll() // Tuiles vectorielles
 
                         // 📷 Fichiers statiques (photos d'incidents)
                         .requestMatchers("/uploads/**").permitAll()
@@ -0,0 +1,55 @@
+package ma.ehtp.geoinfo.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Crée au démarrage les objets de schéma que Hibernate (ddl-auto=update)
+ * ne sait pas générer : index GiST PostGIS, etc.
+ *
+ * Toutes les instructions sont idempotentes (IF NOT EXISTS).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SpatialSchemaInitializer implements ApplicationRunner {
+
+    private static final List<String> INSTRUCTIONS = List.of(
+            // Index spatial pour les requêtes carte par emprise (&&, ST_MakeEnvelope)
+            "CREATE INDEX IF NOT EXISTS idx_incident_location ON incidents USING GIST (location)",
+            // Curseur de synchronisation incrémentale de la carte (since=)
+            "CREATE INDEX IF NOT EXISTS idx_incident_modification ON incidents "
+                    + "((COALESCE(date_modification, date_declaration)), id)",
+            // Géométries simplifiées des provinces par niveau de détail (ProvinceService)
+            "CREATE TABLE IF NOT EXISTS province_simplifications ("
+                    + "province_id BIGINT NOT NULL REFERENCES provinces (id) ON DELETE CASCADE, "
+                    + "niveau SMALLINT NOT NULL, "
+                    + "geometry geometry(MultiPolygon, 4326) NOT NULL, "
+                    + "PRIMARY KEY (province_id, niveau))",
+            // Provinces découpées en petits polygones (ST_Subdivide) pour les tests d'inclusion
+            "CREATE TABLE IF NOT EXISTS province_parts ("
+                    + "id BIGSERIAL PRIMARY KEY, "
+                    + "province_id BIGINT NOT NULL REFERENCES provinces (id) ON DELETE CASCADE, "
+                    + "geometry geometry(Geometry, 4326) NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS idx_province_parts_geometry ON province_parts USING GIST (geometry)");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (String sql : INSTRUCTIONS) {
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (Exception e) {
+                log.warn("Instruction de schéma spatial ignorée ({}) : {}", sql, e.getMessage());
+            }
+        }
+        log.info("Schéma spatial vérifié ({} instruction(s))", INSTRUCTIONS.size());
+    }
+}
@@ -1,24 +0,0 @@
-package ma.ehtp.geoinfo.config;
-
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
-
-/**
- * Configuration pour servir les fichiers statiques (photos d'incidents)
- */
-@Configuration
-public class StaticResourceConfig implements WebMvcConfigurer {
-
-    @Value("${file.upload-dir}")
-    private String uploadDir;
-
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // Servir les fichiers uploadés depuis /uploads/**
-        // Utilise le chemin configuré dans application.properties
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:" + uploadDir + "/");
-    }
-}
@@ -4,7 +4,10 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ma.ehtp.geoinfo.dto.request.ProfessionnelRequest;
+import ma.ehtp.geoinfo.dto.response.HotspotResponse;
 import ma.ehtp.geoinfo.dto.response.IncidentResponse;
+import ma.ehtp.geoinfo.dto.response.NettoyagePhotosResponse;
+import ma.ehtp.geoinfo.dto.response.RepriseProvincesResponse;
 import ma.ehtp.geoinfo.entity.Professionnel;
 import ma.ehtp.geoinfo.entity.Secteur;
 import ma.ehtp.geoinfo.entity.Utilisateur;
@@ -12,12 +15,19 @@ import ma.ehtp.geoinfo.repository.ProfessionnelRepository;
 import ma.ehtp.geoinfo.repository.SecteurRepository;
 import ma.ehtp.geoinfo.repository.UtilisateurRepository;
 import ma.ehtp.geoinfo.service.AdminService;
+import ma.ehtp.geoinfo.service.DashboardService;
+import ma.ehtp.geoinfo.service.HotspotService;
+import ma.ehtp.geoinfo.service.ImageVariantesService;
+import ma.ehtp.geoinfo.service.NettoyagePhotosService;
+import ma.ehtp.geoinfo.service.RepriseProvincesService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -34,6 +44,11 @@ import java.util.Map;
 public class AdminController {
 
     private final AdminService adminService;
+    private final DashboardService dashboardService;
+    private final HotspotService hotspotService;
+    private final RepriseProvincesService repriseProvincesService;
+    private final ImageVariantesService imageVariantesService;
+    private final NettoyagePhotosService nettoyagePhotosService;
     private final ProfessionnelRepository professionnelRepository;
     private final SecteurRepository secteurRepository;
     private final UtilisateurRepository utilisateurRepository;
@@ -227,15 +242,98 @@ public class AdminController {
     /**
      * GET /api/admin/dashboard
      * Récupère les statistiques pour le dashboard admin
+     * Servies depuis un snapshot précalculé (rafraîchi en arrière-plan)
      */
     @GetMapping("/dashboard")
     public ResponseEntity<Map<String, Object>> getDashboardStats() {
         log.info("Admin : récupération statistiques dashboard");
 
-        // TODO: Implémenter les statistiques complètes
-        Map<String, Object> stats = Map.of(
-                "message", "Dashboard stats - À implémenter en Phase 6");
+        Map<String, Object> stats = dashboardService.getDashboardAdmin();
 
         return ResponseEntity.ok(stats);
     }
+
+    /**
+     * GET /api/admin/hotspots
+     * Récupère les cellules hexagonales les plus denses en incidents
+     * (surfaces égales : comparaison équitable entre quartiers)
+     *
+     * @param resolution   5 (~8 km), 7 (~1,2 km) ou 9 (~170 m)
+     * @param parent       Cellule de résolution 5 ou 7, inférieure à resolution, à explorer (optionnel)
+     * @param from         Date de déclaration minimale (optionnel)
+     * @param to           Date de déclaration maximale exclue (optionnel)
+     * @param secteurId    Secteur (optionnel)
+     * @param typeIncident Type (optionnel)
+     * @param limit        Nombre maximum de cellules (défaut: 50)
+     */
+    @GetMapping("/hotspots")
+    public ResponseEntity<HotspotResponse> getHotspots(
+            @RequestParam(defaultValue = "7") int resolution,
+            @RequestParam(required = false) Long parent,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long secteurId,
+            @RequestParam(required = false) String typeIncident,
+            @RequestParam(defaultValue = "50") int limit) {
+        log.info("Admin : points chauds (résolution {}, parent {})", resolution, parent);
+
+        return ResponseEntity.ok(hotspotService.getHotspots(
+                resolution, parent, from, to, secteurId, typeIncident, limit));
+    }
+
+    /**
+     * GET /api/admin/images/metriques
+     * Métriques de génération des variantes de photos (file d'attente, durées)
+     */
+    @GetMapping("/images/metriques")
+    public ResponseEntity<Map<String, Object>> getMetriquesImages() {
+        return ResponseEntity.ok(imageVariantesService.getMetriques());
+    }
+
+    /**
+     * GET /api/admin/photos/nettoyage
+     * Rapport du dernier nettoyage des photos orphelines (fichiers, octets récupérés)
+     */
+    @GetMapping("/photos/nettoyage")
+    public ResponseEntity<NettoyagePhotosResponse> getNettoyagePhotos() {
+        return ResponseEntity.ok(nettoyagePhotosService.getDernierRapport());
+    }
+
+    /**
+     * POST /api/admin/provinces/reprise
+     * Lance la reprise des provinces approximées des incidents (job en arrière-plan)
+     *
+     * @param tous      Recalculer la province de tous les incidents (défaut: false)
+     * @param reprendre Repartir du dernier lot d'un job non terminé (défaut: true)
+     */
+    @PostMapping("/provinces/reprise")
+    public ResponseEntity<RepriseProvincesResponse> demarrerRepriseProvinces(
+            @RequestParam(defaultValue = "false") boolean tous,
+            @RequestParam(defaultValue = "true") boolean reprendre) {
+        log.info("Admin : reprise des provinces (tous={}, reprendre={})", tous, reprendre);
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(repriseProvincesService.demarrer(tous, reprendre));
+    }
+
+    /**
+     * GET /api/admin/provinces/reprise
+     * Récupère l'avancement de la reprise des provinces (progression, débit)
+     */
+    @GetMapping("/provinces/reprise")
+    public ResponseEntity<RepriseProvincesResponse> getRepriseProvinces() {
+        return ResponseEntity.ok(repriseProvincesService.getAvancement());
+    }
+
+    /**
+     * DELETE /api/admin/provinces/reprise
+     * Arrête la reprise des provinces à la fin du lot courant (reprenable)
+     */
+    @DeleteMapping("/provinces/reprise")
+    public ResponseEntity<RepriseProvincesResponse> arreterRepriseProvinces() {
+        log.info("Admin : arrêt de la reprise des provinces");
+
+        repriseProvincesService.arreter();
+
+        return ResponseEntity.ok(repriseProvincesService.getAvancement());
+    }
 }
@@ -9,8 +9,10 @@ import ma.ehtp.geoinfo.dto.request.AccountRecoveryRequest;
 import ma.ehtp.geoinfo.dto.request.IncidentRequest;
 import ma.ehtp.geoinfo.dto.response.AccountRecoveryResponse;
 import ma.ehtp.geoinfo.dto.response.IncidentResponse;
+import ma.ehtp.geoinfo.geo.BoundingBox;
 import ma.ehtp.geoinfo.service.CitoyenService;
 import ma.ehtp.geoinfo.service.RateLimitService;
+import ma.ehtp.geoinfo.util.FormatColonnesIncidents;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -97,18 +99,52 @@ public class CitoyenController {
      * GET /api/citoyens/incidents/carte
      * Récupère les incidents pour affichage sur carte
      * Retourne uniquement les incidents VALIDES (publiés)
+     * Avec bbox=minLon,minLat,maxLon,maxLat : uniquement l'emprise visible,
+     * plafonnée (zoom/limit) et triée par récence
+     * Avec since=curseur : uniquement les modifications depuis la dernière
+     * synchronisation (SyncCarteResponse)
      */
     @GetMapping("/incidents/carte")
-    public ResponseEntity<List<IncidentResponse>> getIncidentsForMap() {
-        log.info("Récupération incidents pour carte");
+    public ResponseEntity<?> getIncidentsForMap(
+            @RequestParam(required = false) String bbox,
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String since) {
+        log.info("Récupération incidents pour carte (bbox={}, zoom={}, since={})", bbox, zoom, since);
+
+        if (since != null) {
+            return ResponseEntity.ok(citoyenService.getModificationsCarte(
+                    since, bbox != null ? BoundingBox.parse(bbox) : null));
+        }
 
-        List<IncidentResponse> incidents = citoyenService.getIncidentsForMap();
+        List<IncidentResponse> incidents = bbox != null
+                ? citoyenService.getIncidentsForMap(BoundingBox.parse(bbox), zoom, limit)
+                : citoyenService.getIncidentsForMap();
 
         log.info("Nombre d'incidents publiés : {}", incidents.size());
 
         return ResponseEntity.ok(incidents);
     }
 
+    /**
+     * GET /api/citoyens/incidents/carte (Accept: application/x-incident-columns)
+     * Marqueurs de la carte au format binaire en colonnes (voir FormatColonnesIncidents)
+     * Mêmes paramètres et mêmes incidents que la version JSON
+     */
+    @GetMapping(value = "/incidents/carte", produces = FormatColonnesIncidents.MEDIA_TYPE)
+    public ResponseEntity<byte[]> getIncidentsForMapColonnes(
+            @RequestParam(required = false) String bbox,
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(required = false) Integer limit) {
+
+        byte[] colonnes = citoyenService.getIncidentsForMapColonnes(
+                bbox != null ? BoundingBox.parse(bbox) : null, zoom, limit);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(FormatColonnesIncidents.MEDIA_TYPE))
+                .body(colonnes);
+    }
+
     /**
      * POST /api/citoyens/recover-account
      * Récupère un compte citoyen via UUID (changement d'appareil)
@@ -2,21 +2,43 @@ package ma.ehtp.geoinfo.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import ma.ehtp.geoinfo.storage.PhotoStorage;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 /**
  * Contrôleur pour servir les fichiers uploadés (photos d'incidents)
  * Endpoint public accessible sans authentification
+ *
+ * - ETag fort et Last-Modified, réponses 304 aux requêtes conditionnelles ;
+ * - requêtes partielles Range / If-Range (206, 416) ;
+ * - cache immuable d'un an pour les fichiers dont le nom ne désigne qu'un
+ *   seul contenu (empreinte SHA-256 ou UUID, et leurs variantes) ;
+ * - contenu lu par régions d'un FileSystemResource (FileChannel), sans
+ *   chargement du fichier en mémoire.
+ *
+ * Avec un stockage distant (S3), les photos sont servies par le stockage :
+ * les anciennes URLs /uploads/ sont redirigées vers l'URL du backend.
  */
 @RestController
 @RequestMapping("/uploads")
@@ -25,43 +47,160 @@ import java.nio.file.Paths;
 @CrossOrigin(origins = { "http://localhost:5173", "http://localhost:5174" })
 public class FileController {
 
-    @Value("${file.upload-dir}")
-    private String uploadDir;
+    /**
+     * Noms immuables : <sha256>.<ext> ou <uuid>.<ext>, suivis éventuellement
+     * d'un suffixe de variante (_min, _web)
+     */
+    private static final Pattern NOM_IMMUABLE = Pattern.compile(
+            "^([0-9a-f]{64}|[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})(_min|_web)?\\.[A-Za-z0-9]+$");
+
+    private static final Pattern EMPREINTE = Pattern.compile("^[0-9a-f]{64}\\.[A-Za-z0-9]+$");
+
+    private static final CacheControl CACHE_IMMUABLE = CacheControl.maxAge(365, TimeUnit.DAYS)
+            .cachePublic()
+            .immutable();
+
+    private static final CacheControl CACHE_REVALIDATION = CacheControl.maxAge(1, TimeUnit.HOURS)
+            .cachePublic();
+
+    private final PhotoStorage photoStorage;
 
     /**
      * GET /uploads/{filename}
-     * Sert un fichier uploadé (photo d'incident)
-     * 
+     * Sert un fichier uploadé (photo d'incident), entier ou par plages
+     *
      * @param filename Nom du fichier à servir
-     * @return Fichier avec le content-type approprié
+     * @param entetes  En-têtes de la requête (If-None-Match, If-Modified-Since, Range, If-Range)
+     * @return Fichier (200), plage(s) (206), 302 (stockage distant), 304, 404 ou 416
      */
     @GetMapping("/{filename:.+}")
-    public ResponseEntity<Resource> serveFile(@PathVariable String filename) {
+    public ResponseEntity<?> serveFile(@PathVariable String filename, @RequestHeader HttpHeaders entetes) {
+        Path file;
+        BasicFileAttributes attributs;
         try {
-            Path file = Paths.get(uploadDir).resolve(filename).normalize();
-            Resource resource = new UrlResource(file.toUri());
+            Optional<Path> local = photoStorage.getCheminLocal(filename);
+            if (local.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.FOUND)
+                        .location(URI.create(photoStorage.getUrl(filename)))
+                        .build();
+            }
+            file = local.get();
+            attributs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IllegalArgumentException | IOException e) {
+            log.warn("Fichier non trouvé ou non lisible: {}", filename);
+            return ResponseEntity.notFound().build();
+        }
+        if (!attributs.isRegularFile()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        long taille = attributs.size();
+        // Précision HTTP : la seconde
+        long derniereModification = attributs.lastModifiedTime().toMillis() / 1000 * 1000;
+        String etag = etag(filename, taille, derniereModification);
+        MediaType contentType = MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM);
 
-            if (!resource.exists() || !resource.isReadable()) {
+        HttpHeaders reponse = new HttpHeaders();
+        reponse.setETag(etag);
+        reponse.setLastModified(derniereModification);
+        reponse.setCacheControl(NOM_IMMUABLE.matcher(filename).matches() ? CACHE_IMMUABLE : CACHE_REVALIDATION);
+        reponse.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (nonModifie(entetes, etag, derniereModification)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(reponse).build();
+        }
+
+        reponse.setContentType(contentType);
+        reponse.setContentDisposition(ContentDisposition.inline().filename(filename).build());
+        Resource resource = new FileSystemResource(file);
+
+        List<HttpRange> plages;
+        try {
+            plages = entetes.getRange();
+        } catch (IllegalArgumentException e) {
+            // En-tête Range mal formé : ignoré (RFC 9110)
+            plages = List.of();
+        }
+        if (plages.isEmpty()) {
+            return ResponseEntity.ok().headers(reponse).contentLength(taille).body(resource);
+        }
+        if (!plageApplicable(entetes.getFirst(HttpHeaders.IF_RANGE), etag, derniereModification)) {
+            // Représentation modifiée : fichier entier. Spring appliquerait l'en-tête Range
+            // à un Resource renvoyé en 200 ; un InputStreamResource y échappe
+            try {
+                return ResponseEntity.ok().headers(reponse).contentLength(taille)
+                        .body(new InputStreamResource(Files.newInputStream(file)));
+            } catch (IOException e) {
                 log.warn("Fichier non trouvé ou non lisible: {}", filename);
                 return ResponseEntity.notFound().build();
             }
+        }
 
-            // Déterminer le content-type
-            String contentType = Files.probeContentType(file);
-            if (contentType == null) {
-                contentType = "application/octet-stream";
+        try {
+            if (plages.size() == 1) {
+                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(reponse)
+                        .body(plages.get(0).toResourceRegion(resource));
             }
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(reponse)
+                    .body(HttpRange.toResourceRegions(plages, resource));
+        } catch (IllegalArgumentException e) {
+            log.debug("Plage non satisfaisable pour {} ({} octets) : {}", filename, taille, plages);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + taille)
+                    .build();
+        }
+    }
 
-            log.info("📸 Serving file: {} ({})", filename, contentType);
+    /**
+     * ETag fort : l'empreinte SHA-256 pour les fichiers adressés par contenu
+     * (sans lecture), sinon taille et date de modification
+     */
+    private static String etag(String filename, long taille, long derniereModification) {
+        if (EMPREINTE.matcher(filename).matches()) {
+            return "\"" + filename.substring(0, 64) + "\"";
+        }
+        return "\"" + Long.toHexString(taille) + "-" + Long.toHexString(derniereModification) + "\"";
+    }
+
+    /**
+     * If-None-Match prioritaire sur If-Modified-Since
+     */
+    private static boolean nonModifie(HttpHeaders entetes, String etag, long derniereModification) {
+        List<String> ifNoneMatch = entetes.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            for (String valeur : ifNoneMatch) {
+                String tag = valeur.startsWith("W/") ? valeur.substring(2) : valeur;
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = datePermissive(entetes, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && derniereModification <= ifModifiedSince;
+    }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                    .body(resource);
+    /**
+     * If-Range : la plage n'est servie que si la représentation est inchangée
+     * (comparaison forte de l'ETag, ou date égale à Last-Modified)
+     */
+    private static boolean plageApplicable(String ifRange, String etag, long derniereModification) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        HttpHeaders date = new HttpHeaders();
+        date.set(HttpHeaders.IF_RANGE, ifRange);
+        return datePermissive(date, HttpHeaders.IF_RANGE) == derniereModification;
+    }
 
-        } catch (Exception e) {
-            log.error("Erreur lors de la lecture du fichier: {}", filename, e);
-            return ResponseEntity.internalServerError().build();
+    private static long datePermissive(HttpHeaders entetes, String nom) {
+        try {
+            return entetes.getFirstDate(nom);
+        } catch (IllegalArgumentException e) {
+            return -1;
         }
     }
 }
@@ -2,15 +2,22 @@ package ma.ehtp.geoinfo.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.dto.response.ClusterResponse;
+import ma.ehtp.geoinfo.dto.response.HeatmapResponse;
 import ma.ehtp.geoinfo.dto.response.IncidentResponse;
+import ma.ehtp.geoinfo.geo.BoundingBox;
+import ma.ehtp.geoinfo.service.ClusterService;
+import ma.ehtp.geoinfo.service.HeatmapService;
 import ma.ehtp.geoinfo.service.IncidentService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.Map;
 
 /**
@@ -25,6 +32,8 @@ import java.util.Map;
 public class IncidentController {
 
     private final IncidentService incidentService;
+    private final ClusterService clusterService;
+    private final HeatmapService heatmapService;
 
     /**
      * GET /api/incidents
@@ -127,6 +136,49 @@ public class IncidentController {
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * GET /api/incidents/clusters
+     * Récupère les marqueurs regroupés par niveau de zoom pour la carte
+     * 
+     * @param z    Niveau de zoom
+     * @param bbox Emprise visible (minLon,minLat,maxLon,maxLat)
+     */
+    @GetMapping("/clusters")
+    public ResponseEntity<java.util.List<ClusterResponse>> getClusters(
+            @RequestParam int z,
+            @RequestParam String bbox) {
+
+        log.info("GET /api/incidents/clusters : z={}, bbox={}", z, bbox);
+
+        return ResponseEntity.ok(clusterService.getClusters(z, BoundingBox.parse(bbox)));
+    }
+
+    /**
+     * GET /api/incidents/heatmap
+     * Récupère la densité des incidents publics sur une grille régulière
+     * 
+     * @param bbox         Emprise (minLon,minLat,maxLon,maxLat)
+     * @param cellSize     Pas de la grille en degrés
+     * @param from         Date de déclaration minimale (optionnel)
+     * @param to           Date de déclaration maximale exclue (optionnel)
+     * @param secteurId    Secteur (optionnel)
+     * @param typeIncident Type (optionnel)
+     */
+    @GetMapping("/heatmap")
+    public ResponseEntity<HeatmapResponse> getHeatmap(
+            @RequestParam String bbox,
+            @RequestParam(defaultValue = "0.05") double cellSize,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long secteurId,
+            @RequestParam(required = false) String typeIncident) {
+
+        log.info("GET /api/incidents/heatmap : bbox={}, cellSize={}", bbox, cellSize);
+
+        return ResponseEntity.ok(heatmapService.getHeatmap(
+                BoundingBox.parse(bbox), cellSize, from, to, secteurId, typeIncident));
+    }
+
     /**
      * PUT /api/incidents/{id}/statut
      * Met à jour le statut d'un incident (pour les professionnels)
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ma.ehtp.geoinfo.dto.response.IncidentResponse;
 import ma.ehtp.geoinfo.repository.UtilisateurRepository;
+import ma.ehtp.geoinfo.service.DashboardService;
 import ma.ehtp.geoinfo.service.ProfessionnelService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -26,6 +27,7 @@ import java.util.Map;
 public class ProfessionnelController {
 
     private final ProfessionnelService professionnelService;
+    private final DashboardService dashboardService;
     private final UtilisateurRepository utilisateurRepository;
 
     /**
@@ -162,7 +164,8 @@ public class ProfessionnelController {
 
     /**
      * GET /api/professionnel/dashboard
-     * Récupère les statistiques pour le dashboard professionnel
+     * Récupère les statistiques pour le dashboard professionnel (secteur du
+     * professionnel), servies depuis un snapshot précalculé
      */
     @GetMapping("/dashboard")
     public ResponseEntity<Map<String, Object>> getDashboardStats(Authentication authentication) {
@@ -170,9 +173,7 @@ public class ProfessionnelController {
 
         log.info("Professionnel {} : récupération statistiques dashboard", professionnelId);
 
-        // TODO: Implémenter les statistiques complètes
-        Map<String, Object> stats = Map.of(
-                "message", "Dashboard stats - À implémenter en Phase 6");
+        Map<String, Object> stats = dashboardService.getDashboardProfessionnel(professionnelId);
 
         return ResponseEntity.ok(stats);
     }
@@ -5,15 +5,22 @@ import lombok.extern.slf4j.Slf4j;
 import ma.ehtp.geoinfo.dto.request.IncidentRequest;
 import ma.ehtp.geoinfo.dto.response.IncidentResponse;
 import ma.ehtp.geoinfo.entity.Secteur;
+import ma.ehtp.geoinfo.geo.BoundingBox;
 import ma.ehtp.geoinfo.repository.SecteurRepository;
 import ma.ehtp.geoinfo.service.CitoyenService;
 import ma.ehtp.geoinfo.service.ProvinceService;
+import ma.ehtp.geoinfo.util.DocumentCompresse;
+import ma.ehtp.geoinfo.util.FormatColonnesIncidents;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Contrôleur pour les endpoints publics (sans authentification)
@@ -45,34 +52,103 @@ public class PublicController {
     /**
      * GET /api/provinces/geojson
      * Récupère toutes les provinces au format GeoJSON pour affichage sur carte
-     * Utilise ST_AsGeoJSON de PostGIS pour convertir les géométries
+     * Servi depuis un cache précompressé : gzip si le client l'accepte,
+     * ETag fort et 304 si If-None-Match correspond
+     * 
+     * Avec format=topojson : topologie à arcs partagés (frontières communes
+     * encodées une seule fois), coordonnées quantifiées et delta-encodées
+     * 
+     * @param zoom      Zoom de la carte : choisit le niveau de simplification (optionnel)
+     * @param tolerance Tolérance de simplification maximale en degrés (optionnel, prioritaire)
+     * @param format    geojson (défaut) ou topojson
      */
     @GetMapping("/provinces/geojson")
-    public ResponseEntity<String> getProvincesGeoJSON() {
+    public ResponseEntity<byte[]> getProvincesGeoJSON(
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(required = false) Double tolerance,
+            @RequestParam(defaultValue = "geojson") String format,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("Récupération des provinces au format GeoJSON");
 
         try {
             // Récupérer toutes les provinces avec géométries
-            String geoJson = provinceService.getProvincesAsGeoJSON();
+            ProvinceService.NiveauDetail niveau = tolerance != null
+                    ? ProvinceService.NiveauDetail.pourTolerance(tolerance)
+                    : ProvinceService.NiveauDetail.pourZoom(zoom);
 
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/geo+json")
-                    .body(geoJson);
+            if ("topojson".equalsIgnoreCase(format)) {
+                DocumentCompresse topoJson = provinceService.getProvincesTopoJSONCompresse(niveau);
+                return reponseCompressee(topoJson, MediaType.APPLICATION_JSON, ifNoneMatch, acceptEncoding);
+            }
+            if (!"geojson".equalsIgnoreCase(format)) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            DocumentCompresse geoJson = provinceService.getProvincesGeoJSONCompresse(niveau);
+
+            return reponseCompressee(geoJson, MediaType.parseMediaType("application/geo+json"),
+                    ifNoneMatch, acceptEncoding);
         } catch (Exception e) {
             log.error("Erreur lors de la récupération du GeoJSON des provinces", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * Construit la réponse d'un document précompressé (304, gzip ou brut)
+     * Les provinces changent rarement : cache navigateur d'un jour, revalidé par ETag
+     */
+    private ResponseEntity<byte[]> reponseCompressee(DocumentCompresse document, MediaType type,
+            String ifNoneMatch, String acceptEncoding) {
+        return document.reponse(type, CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic(),
+                ifNoneMatch, acceptEncoding);
+    }
+
     /**
      * GET /api/incidents/carte
      * Récupère les incidents pour la carte (alias public)
+     * Avec bbox=minLon,minLat,maxLon,maxLat : uniquement l'emprise visible,
+     * plafonnée (zoom/limit) et triée par récence
+     * Avec since=curseur : uniquement les modifications depuis la dernière
+     * synchronisation (SyncCarteResponse)
      */
     @GetMapping("/incidents/carte")
-    public ResponseEntity<List<IncidentResponse>> getIncidentsForMap() {
-        return citoyenService.getIncidentsForMap() != null
-                ? ResponseEntity.ok(citoyenService.getIncidentsForMap())
-                : ResponseEntity.ok(List.of());
+    public ResponseEntity<?> getIncidentsForMap(
+            @RequestParam(required = false) String bbox,
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String since) {
+
+        if (since != null) {
+            return ResponseEntity.ok(citoyenService.getModificationsCarte(
+                    since, bbox != null ? BoundingBox.parse(bbox) : null));
+        }
+
+        List<IncidentResponse> incidents = bbox != null
+                ? citoyenService.getIncidentsForMap(BoundingBox.parse(bbox), zoom, limit)
+                : citoyenService.getIncidentsForMap();
+
+        return ResponseEntity.ok(incidents != null ? incidents : List.of());
+    }
+
+    /**
+     * GET /api/incidents/carte (Accept: application/x-incident-columns)
+     * Marqueurs de la carte au format binaire en colonnes (voir FormatColonnesIncidents)
+     * Mêmes paramètres et mêmes incidents que la version JSON
+     */
+    @GetMapping(value = "/incidents/carte", produces = FormatColonnesIncidents.MEDIA_TYPE)
+    public ResponseEntity<byte[]> getIncidentsForMapColonnes(
+            @RequestParam(required = false) String bbox,
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(required = false) Integer limit) {
+
+        byte[] colonnes = citoyenService.getIncidentsForMapColonnes(
+                bbox != null ? BoundingBox.parse(bbox) : null, zoom, limit);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(FormatColonnesIncidents.MEDIA_TYPE))
+                .body(colonnes);
     }
 
     /**
@@ -2,14 +2,23 @@ package ma.ehtp.geoinfo.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.dto.response.DelaisTraitementResponse;
+import ma.ehtp.geoinfo.dto.response.SerieTemporelleResponse;
 import ma.ehtp.geoinfo.dto.response.StatistiquesResponse;
+import ma.ehtp.geoinfo.service.DelaisTraitementService;
 import ma.ehtp.geoinfo.service.IncidentService;
+import ma.ehtp.geoinfo.service.RollupService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
+
 /**
  * Controller pour les statistiques publiques
  */
@@ -21,6 +30,8 @@ import org.springframework.web.bind.annotation.RestController;
 public class StatistiquesController {
 
     private final IncidentService incidentService;
+    private final RollupService rollupService;
+    private final DelaisTraitementService delaisTraitementService;
 
     /**
      * GET /api/statistiques
@@ -36,4 +47,50 @@ public class StatistiquesController {
 
         return ResponseEntity.ok(stats);
     }
+
+    /**
+     * GET /api/statistiques/timeseries
+     * Récupère l'évolution du nombre d'incidents (graphiques des dashboards)
+     * Lue depuis les tables de rollup pré-agrégées
+     *
+     * @param from         Début inclus (défaut: 30 jours avant to)
+     * @param to           Fin exclue (défaut: maintenant)
+     * @param granularity  hour, day, week ou month (défaut: day)
+     * @param province     Province (optionnel)
+     * @param secteurId    Secteur (optionnel)
+     * @param typeIncident Type (optionnel)
+     */
+    @PreAuthorize("hasAnyRole('ADMIN', 'PROFESSIONNEL')")
+    @GetMapping("/timeseries")
+    public ResponseEntity<SerieTemporelleResponse> getSerieTemporelle(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) String province,
+            @RequestParam(required = false) Long secteurId,
+            @RequestParam(required = false) String typeIncident) {
+
+        LocalDateTime fin = to != null ? to : LocalDateTime.now();
+        LocalDateTime debut = from != null ? from : fin.minusDays(30);
+
+        log.info("Récupération série temporelle : {} → {} ({})", debut, fin, granularity);
+
+        SerieTemporelleResponse serie = rollupService.getSerieTemporelle(
+                debut, fin, granularity, province, secteurId, typeIncident);
+
+        return ResponseEntity.ok(serie);
+    }
+
+    /**
+     * GET /api/statistiques/delais
+     * Récupère les quantiles (p50, p90, p99) des délais de traitement en heures
+     * sur 7 et 30 jours glissants, globalement, par secteur et par province
+     */
+    @PreAuthorize("hasAnyRole('ADMIN', 'PROFESSIONNEL')")
+    @GetMapping("/delais")
+    public ResponseEntity<DelaisTraitementResponse> getDelaisTraitement() {
+        log.info("Récupération des quantiles de délais de traitement");
+
+        return ResponseEntity.ok(delaisTraitementService.getQuantiles());
+    }
 }
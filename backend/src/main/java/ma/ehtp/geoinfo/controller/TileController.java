@@ -0,0 +1,53 @@
+package ma.ehtp.geoinfo.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.service.VectorTileService;
+import ma.ehtp.geoinfo.util.DocumentCompresse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contrôleur des tuiles vectorielles (Mapbox Vector Tile) pour la carte
+ * Endpoint public accessible sans authentification
+ */
+@RestController
+@RequestMapping("/api/tiles")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = { "http://localhost:5173", "http://localhost:5174" })
+public class TileController {
+
+    private static final MediaType MVT = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
+    private final VectorTileService vectorTileService;
+
+    /**
+     * GET /api/tiles/{layer}/{z}/{x}/{y}.mvt
+     * Récupère une tuile vectorielle (couche incidents ou provinces)
+     * Réponse gzippée si le client l'accepte, avec ETag : 304 si If-None-Match correspond
+     */
+    @GetMapping("/{layer}/{z}/{x}/{y}.mvt")
+    public ResponseEntity<byte[]> getTuile(
+            @PathVariable String layer,
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        DocumentCompresse tuile = vectorTileService.getTuile(layer, z, x, y);
+
+        // Les provinces changent rarement, les incidents à chaque transition
+        CacheControl cacheControl = VectorTileService.COUCHE_PROVINCES.equals(layer)
+                ? CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic()
+                : CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic();
+
+        return tuile.reponse(MVT, cacheControl, ifNoneMatch, acceptEncoding);
+    }
+}
@@ -0,0 +1,28 @@
+package ma.ehtp.geoinfo.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * DTO pour un cluster de marqueurs (ou un incident isolé si nombre = 1)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterResponse {
+
+    private Double latitude; // Barycentre des incidents du cluster
+    private Double longitude;
+    private Long nombre;
+    private Map<String, Long> parStatut;
+
+    // Renseignés uniquement pour un incident isolé
+    private Long incidentId;
+    private String statut;
+    private Long secteurId;
+}
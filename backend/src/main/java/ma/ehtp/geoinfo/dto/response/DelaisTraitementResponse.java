@@ -0,0 +1,49 @@
+package ma.ehtp.geoinfo.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * DTO pour les quantiles des délais de traitement (en heures)
+ * sur les fenêtres glissantes de 7 et 30 jours
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DelaisTraitementResponse {
+
+    private FenetreDTO septJours;
+    private FenetreDTO trenteJours;
+
+    /**
+     * DTO imbriqué pour une fenêtre glissante
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FenetreDTO {
+        private QuantilesDTO global;
+        private Map<String, QuantilesDTO> parSecteur;
+        private Map<String, QuantilesDTO> parProvince;
+    }
+
+    /**
+     * DTO imbriqué pour les quantiles d'une population
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class QuantilesDTO {
+        private Long nombre;
+        private Double p50;
+        private Double p90;
+        private Double p99;
+    }
+}
@@ -0,0 +1,28 @@
+package ma.ehtp.geoinfo.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO de réponse pour la heatmap des incidents publics
+ *
+ * La cellule (cellX, cellY) couvre les longitudes [cellX * cellSize, (cellX + 1) * cellSize[
+ * et les latitudes [cellY * cellSize, (cellY + 1) * cellSize[ (degrés WGS84).
+ * Les cellules non vides sont aplaties en triplets : [cellX, cellY, count, cellX, cellY, count, ...]
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeatmapResponse {
+
+    private double cellSize;
+    private int[] cellules;
+    private long total;
+    private long max; // Plus grand nombre d'incidents dans une cellule (normalisation des couleurs)
+    private LocalDateTime genereLe;
+}
@@ -0,0 +1,35 @@
+package ma.ehtp.geoinfo.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO de réponse pour l'analyse des points chauds par cellules hexagonales
+ * Toutes les cellules d'une résolution ont la même surface (HexGrid)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotspotResponse {
+
+    private int resolution;
+    private double areteMetres;
+    private List<CelluleDTO> cellules; // Triées par nombre décroissant
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CelluleDTO {
+        private long cellule;
+        private double latitude; // Centre de la cellule
+        private double longitude;
+        private long nombre;
+        private double[][] contour; // 6 sommets [latitude, longitude]
+    }
+}
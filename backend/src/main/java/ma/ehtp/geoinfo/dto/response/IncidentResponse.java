@@ -25,6 +25,8 @@ public class IncidentResponse {
     private String nomLocal; // Nom du local/lieu
     private String localisation; // Adresse/description du lieu
     private String photoUrl;
+    private String photoMiniatureUrl; // Miniature pour listes et carte (null si pas encore générée)
+    private String photoWebUrl; // Variante web (côté max 1280 px)
     private LocalDateTime dateDeclaration;
     private String statut;
     private Long secteurId;
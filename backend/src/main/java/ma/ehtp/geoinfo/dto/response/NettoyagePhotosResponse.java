@@ -0,0 +1,29 @@
+package ma.ehtp.geoinfo.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO de réponse pour le rapport du dernier nettoyage des photos orphelines
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NettoyagePhotosResponse {
+
+    private String statut; // AUCUN, TERMINE, ECHEC
+    private LocalDateTime dateDebut;
+    private long dureeMs;
+    private long references; // Photos référencées par les incidents (phase de marquage)
+    private long tailleFiltreOctets;
+    private long fichiersParcourus;
+    private long fichiersSupprimes;
+    private long octetsRecuperes;
+    private long erreurs;
+    private String erreur;
+}
@@ -0,0 +1,31 @@
+package ma.ehtp.geoinfo.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO de réponse pour l'avancement de la reprise des provinces des incidents
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RepriseProvincesResponse {
+
+    private String statut; // AUCUNE, EN_COURS, ARRETE, TERMINE, ECHEC
+    private boolean tous;
+    private long aTraiter; // Estimation au démarrage
+    private long traites;
+    private long corriges; // Province modifiée
+    private long nonResolus; // Point hors de toute province : inchangé
+    private long dernierId;
+    private double debitParSeconde;
+    private Double pourcentage;
+    private LocalDateTime dateDebut;
+    private LocalDateTime dateMiseAJour;
+    private String erreur;
+}
@@ -0,0 +1,38 @@
+package ma.ehtp.geoinfo.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO pour une série temporelle d'incidents (graphiques des dashboards)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SerieTemporelleResponse {
+
+    private String granularite; // hour, day, week, month
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private List<PointDTO> points;
+
+    /**
+     * DTO imbriqué pour un intervalle de la série
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PointDTO {
+        private LocalDateTime bucket; // Début de l'intervalle
+        private Long total;
+        private Map<String, Long> parStatut;
+    }
+}
@@ -0,0 +1,25 @@
+package ma.ehtp.geoinfo.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO de réponse pour la synchronisation incrémentale de la carte (since=)
+ * Contient les incidents publiés créés/modifiés depuis le curseur,
+ * les identifiants des incidents retirés de la carte et le nouveau curseur
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncCarteResponse {
+
+    private String curseur; // À renvoyer tel quel dans since= à la prochaine synchronisation
+    private boolean complet; // false : d'autres modifications restent à récupérer immédiatement
+    private List<IncidentResponse> incidents;
+    private List<Long> supprimes; // Incidents ayant quitté la carte (rejetés, bloqués, pris en charge...)
+}
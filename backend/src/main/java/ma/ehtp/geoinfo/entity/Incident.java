@@ -25,7 +25,11 @@ import java.time.LocalDateTime;
 @Table(name = "incidents", indexes = {
         @Index(name = "idx_incident_statut", columnList = "statut"),
         @Index(name = "idx_incident_secteur", columnList = "secteur_id"),
-        @Index(name = "idx_incident_date", columnList = "date_declaration")
+        @Index(name = "idx_incident_date", columnList = "date_declaration"),
+        @Index(name = "idx_incident_hex_r5", columnList = "hex_r5"),
+        @Index(name = "idx_incident_hex_r7", columnList = "hex_r7"),
+        @Index(name = "idx_incident_hex_r9", columnList = "hex_r9"),
+        @Index(name = "idx_incident_photo_url", columnList = "photo_url")
 })
 @EntityListeners(AuditingEntityListener.class)
 @Data
@@ -69,6 +73,16 @@ public class Incident {
     @Column(nullable = false, length = 100)
     private String province; // Calculée automatiquement par intersection spatiale
 
+    // Cellules hexagonales (HexGrid) pour l'analyse des points chauds
+    @Column(name = "hex_r5")
+    private Long hexR5; // Arête ~8,5 km
+
+    @Column(name = "hex_r7")
+    private Long hexR7; // Arête ~1,2 km
+
+    @Column(name = "hex_r9")
+    private Long hexR9; // Arête ~170 m
+
     // ============================================
     // MÉDIA
     // ============================================
@@ -76,6 +90,12 @@ public class Incident {
     @Column(length = 500)
     private String photoUrl;
 
+    @Column(length = 500)
+    private String photoMiniatureUrl; // Générée en arrière-plan (null tant qu'elle n'existe pas)
+
+    @Column(length = 500)
+    private String photoWebUrl; // Côté max 1280 px
+
     // ============================================
     // DATES
     // ============================================
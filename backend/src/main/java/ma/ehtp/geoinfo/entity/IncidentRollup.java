@@ -0,0 +1,76 @@
+package ma.ehtp.geoinfo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entité IncidentRollup - Compteur pré-agrégé d'incidents par intervalle de temps
+ * Clé : (granularité, bucket, province, secteur, type, statut)
+ *
+ * Alimentée uniquement par RollupService (requêtes SQL incrémentales)
+ * Le bucket correspond à la date de déclaration tronquée à l'heure ou au jour
+ */
+@Entity
+@Table(name = "incident_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_incident_rollup", columnNames = {
+                "granularite", "bucket", "province", "secteur_id", "type_incident", "statut" })
+}, indexes = {
+        @Index(name = "idx_incident_rollup_bucket", columnList = "granularite, bucket")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IncidentRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Granularite granularite;
+
+    @Column(nullable = false)
+    private LocalDateTime bucket;
+
+    @Column(length = 100)
+    private String province;
+
+    @Column(name = "secteur_id")
+    private Long secteurId;
+
+    @Column(length = 100)
+    private String typeIncident;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private Incident.StatutIncident statut;
+
+    @Column(nullable = false)
+    private Long nombre;
+
+    /**
+     * Granularités stockées (les semaines et mois sont dérivés des jours)
+     */
+    public enum Granularite {
+        HEURE("hour"),
+        JOUR("day");
+
+        private final String uniteSql;
+
+        Granularite(String uniteSql) {
+            this.uniteSql = uniteSql;
+        }
+
+        /**
+         * Unité attendue par date_trunc() PostgreSQL
+         */
+        public String getUniteSql() {
+            return uniteSql;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ma.ehtp.geoinfo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entité ProgressionReprise - Avancement persistant d'un job de reprise
+ * de données par lots (une ligne par job), pour pouvoir le reprendre
+ * après un arrêt ou un redémarrage
+ */
+@Entity
+@Table(name = "progressions_reprise")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProgressionReprise {
+
+    @Id
+    @Column(length = 50)
+    private String nom;
+
+    @Column(nullable = false)
+    private Long dernierId; // Dernier identifiant traité (pagination par clé)
+
+    @Column(nullable = false)
+    private Long traites;
+
+    @Column(nullable = false)
+    private Long corriges;
+
+    @Column(nullable = false, length = 20)
+    private String statut; // EN_COURS, ARRETE, TERMINE, ECHEC
+
+    @Column(nullable = false)
+    private Boolean tous; // Tous les incidents ou seulement les provinces approximées
+
+    @Column
+    private LocalDateTime dateDebut;
+
+    @Column
+    private LocalDateTime dateMiseAJour;
+}
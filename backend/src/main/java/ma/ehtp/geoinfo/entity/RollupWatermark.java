@@ -0,0 +1,27 @@
+package ma.ehtp.geoinfo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entité RollupWatermark - Dernière dateModification traitée par un job
+ * incrémental (une ligne par job)
+ */
+@Entity
+@Table(name = "rollup_watermarks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupWatermark {
+
+    @Id
+    @Column(length = 50)
+    private String nom;
+
+    @Column
+    private LocalDateTime valeur;
+}
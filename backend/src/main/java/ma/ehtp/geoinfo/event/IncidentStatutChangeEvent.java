@@ -0,0 +1,92 @@
+package ma.ehtp.geoinfo.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import ma.ehtp.geoinfo.entity.Incident;
+
+import java.time.LocalDateTime;
+
+/**
+ * Événement publié à chaque changement de statut d'un incident
+ * (déclaration, validation, rejet, transitions professionnelles)
+ *
+ * Contient une copie des attributs utiles aux agrégats en mémoire
+ * pour que les listeners n'aient pas à recharger l'entité
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class IncidentStatutChangeEvent {
+
+    private final Long incidentId;
+
+    /**
+     * Statut avant la transition (null pour une nouvelle déclaration)
+     */
+    private final Incident.StatutIncident ancienStatut;
+
+    private final Incident.StatutIncident nouveauStatut;
+
+    private final Long secteurId;
+    private final String secteurNom;
+    private final String province;
+    private final String typeIncident;
+    private final Double latitude;
+    private final Double longitude;
+    private final LocalDateTime dateDeclaration;
+    private final LocalDateTime dateTraitement;
+
+    /**
+     * Construit l'événement à partir de l'incident (à appeler dans la transaction)
+     *
+     * @param incident     Incident après la transition
+     * @param ancienStatut Statut avant la transition
+     */
+    public static IncidentStatutChangeEvent of(Incident incident, Incident.StatutIncident ancienStatut) {
+        return new IncidentStatutChangeEvent(
+                incident.getId(),
+                ancienStatut,
+                incident.getStatut(),
+                incident.getSecteur() != null ? incident.getSecteur().getId() : null,
+                incident.getSecteur() != null ? incident.getSecteur().getNom() : null,
+                incident.getProvince(),
+                incident.getTypeIncident(),
+                incident.getLatitude(),
+                incident.getLongitude(),
+                incident.getDateDeclaration(),
+                incident.getDateTraitement());
+    }
+
+    /**
+     * Indique si l'incident est entré dans l'ensemble public ou l'a quitté
+     */
+    public boolean isVisibiliteModifiee() {
+        return isPublic(ancienStatut) != isPublic(nouveauStatut);
+    }
+
+    /**
+     * Indique si l'incident est apparu sur la carte publique ou l'a quittée
+     */
+    public boolean isVisibiliteCarteModifiee() {
+        return isSurCarte(ancienStatut) != isSurCarte(nouveauStatut);
+    }
+
+    /**
+     * Un incident figure sur la carte publique (marqueurs, clusters, tuiles,
+     * heatmap) uniquement s'il est VALIDE, comme dans getIncidentsForMap
+     */
+    public static boolean isSurCarte(Incident.StatutIncident statut) {
+        return statut == Incident.StatutIncident.VALIDE;
+    }
+
+    /**
+     * Un incident est public s'il n'est ni REDIGE ni BLOQUE
+     * (périmètre des statistiques, plus large que la carte)
+     */
+    public static boolean isPublic(Incident.StatutIncident statut) {
+        return statut != null
+                && statut != Incident.StatutIncident.REDIGE
+                && statut != Incident.StatutIncident.BLOQUE;
+    }
+}
@@ -0,0 +1,24 @@
+package ma.ehtp.geoinfo.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Événement publié lorsqu'une photo a été stockée pour un incident
+ *
+ * Traité après commit : les variantes (miniature, version web) sont
+ * générées en arrière-plan puis rattachées à l'incident
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PhotoStockeeEvent {
+
+    private final Long incidentId;
+
+    /**
+     * Nom du fichier original dans le répertoire de stockage
+     */
+    private final String nomFichier;
+}
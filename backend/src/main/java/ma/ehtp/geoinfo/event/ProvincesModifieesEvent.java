@@ -0,0 +1,23 @@
+package ma.ehtp.geoinfo.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Événement publié lorsque le contenu de la table provinces a changé
+ * (chargement d'un script SQL, correction d'une géométrie...)
+ *
+ * Les structures dérivées des provinces (index en mémoire, caches GeoJSON,
+ * tuiles) se reconstruisent à sa réception
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ProvincesModifieesEvent {
+
+    /**
+     * Empreinte du contenu de la table après modification
+     */
+    private final String empreinte;
+}
@@ -0,0 +1,62 @@
+package ma.ehtp.geoinfo.geo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Emprise géographique (WGS84) au format minLon,minLat,maxLon,maxLat
+ * Paramètre bbox commun aux endpoints cartographiques
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class BoundingBox {
+
+    private final double minLon;
+    private final double minLat;
+    private final double maxLon;
+    private final double maxLat;
+
+    /**
+     * Parse un paramètre bbox "minLon,minLat,maxLon,maxLat"
+     *
+     * @param bbox Valeur du paramètre
+     * @return Emprise validée
+     * @throws IllegalArgumentException si le format ou les bornes sont invalides
+     */
+    public static BoundingBox parse(String bbox) {
+        if (bbox == null || bbox.isBlank()) {
+            throw new IllegalArgumentException("Le paramètre bbox est obligatoire");
+        }
+
+        String[] parties = bbox.split(",");
+        if (parties.length != 4) {
+            throw new IllegalArgumentException("bbox invalide : " + bbox + " (attendu minLon,minLat,maxLon,maxLat)");
+        }
+
+        double[] valeurs = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                valeurs[i] = Double.parseDouble(parties[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bbox invalide : " + bbox);
+        }
+
+        BoundingBox resultat = new BoundingBox(
+                Math.max(-180, valeurs[0]), Math.max(-90, valeurs[1]),
+                Math.min(180, valeurs[2]), Math.min(90, valeurs[3]));
+        if (resultat.minLon >= resultat.maxLon || resultat.minLat >= resultat.maxLat) {
+            throw new IllegalArgumentException("bbox invalide : " + bbox + " (min doit être inférieur à max)");
+        }
+        return resultat;
+    }
+
+    /**
+     * Indique si le point est dans l'emprise (bornes incluses)
+     */
+    public boolean contient(double longitude, double latitude) {
+        return longitude >= minLon && longitude <= maxLon && latitude >= minLat && latitude <= maxLat;
+    }
+}
@@ -0,0 +1,251 @@
+package ma.ehtp.geoinfo.geo;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Grille de correspondance cellule → province, pour une résolution en O(1)
+ *
+ * L'emprise des provinces est découpée en cellules carrées de pas degrés.
+ * Chaque cellule (short) contient :
+ * - 0 : aucune province ne touche la cellule
+ * - i + 1 : la cellule est entièrement dans la géométrie d'indice i
+ * - -1 : la cellule chevauche une frontière (test exact nécessaire)
+ *
+ * La grille est construite par subdivision récursive de l'emprise : un bloc
+ * entièrement couvert par une seule géométrie (ou hors de toutes) est rempli
+ * d'un coup, seuls les blocs traversés par une frontière sont redécoupés.
+ *
+ * Elle peut être enregistrée dans un fichier puis relue par projection
+ * mémoire (FileChannel.map), sans copie dans le tas.
+ */
+public final class GrilleProvinces {
+
+    public static final int AUCUNE = -1;
+    public static final int FRONTIERE = -2;
+    public static final int HORS_GRILLE = -3;
+
+    private static final int MAGIE = 0x47505631; // "GPV1"
+    private static final short CELLULE_FRONTIERE = -1;
+
+    private final double minX;
+    private final double minY;
+    private final double pas;
+    private final int nx;
+    private final int ny;
+    private final ShortBuffer cellules;
+
+    private GrilleProvinces(double minX, double minY, double pas, int nx, int ny, ShortBuffer cellules) {
+        this.minX = minX;
+        this.minY = minY;
+        this.pas = pas;
+        this.nx = nx;
+        this.ny = ny;
+        this.cellules = cellules;
+    }
+
+    /**
+     * Construit la grille couvrant l'emprise des géométries
+     *
+     * @param geometries Géométries préparées (l'indice dans la liste est la valeur renvoyée)
+     * @param pas        Taille d'une cellule en degrés
+     * @return Grille construite en mémoire
+     */
+    public static GrilleProvinces construire(List<PreparedGeometry> geometries, double pas) {
+        if (geometries.size() >= Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Trop de géométries pour la grille : " + geometries.size());
+        }
+        Envelope emprise = new Envelope();
+        STRtree arbre = new STRtree();
+        for (int i = 0; i < geometries.size(); i++) {
+            Envelope enveloppe = geometries.get(i).getGeometry().getEnvelopeInternal();
+            emprise.expandToInclude(enveloppe);
+            arbre.insert(enveloppe, i);
+        }
+        arbre.build();
+
+        double minX = Math.floor(emprise.getMinX() / pas) * pas;
+        double minY = Math.floor(emprise.getMinY() / pas) * pas;
+        int nx = Math.max(1, (int) Math.ceil((emprise.getMaxX() - minX) / pas));
+        int ny = Math.max(1, (int) Math.ceil((emprise.getMaxY() - minY) / pas));
+
+        GrilleProvinces grille = new GrilleProvinces(minX, minY, pas, nx, ny, ShortBuffer.allocate(nx * ny));
+        if (!emprise.isNull()) {
+            grille.remplir(0, 0, nx, ny, geometries, arbre, new GeometryFactory());
+        }
+        return grille;
+    }
+
+    /**
+     * Classe récursivement le bloc de cellules [x0, x1[ x [y0, y1[
+     */
+    @SuppressWarnings("unchecked")
+    private void remplir(int x0, int y0, int x1, int y1, List<PreparedGeometry> geometries,
+            STRtree arbre, GeometryFactory factory) {
+        Envelope bloc = new Envelope(minX + x0 * pas, minX + x1 * pas, minY + y0 * pas, minY + y1 * pas);
+        Geometry rectangle = factory.toGeometry(bloc);
+
+        List<Integer> touchees = new ArrayList<>();
+        for (Integer indice : (List<Integer>) arbre.query(bloc)) {
+            if (geometries.get(indice).intersects(rectangle)) {
+                touchees.add(indice);
+            }
+        }
+
+        if (touchees.isEmpty()) {
+            return; // Cellules déjà à 0
+        }
+        if (touchees.size() == 1 && geometries.get(touchees.get(0)).covers(rectangle)) {
+            remplirBloc(x0, y0, x1, y1, (short) (touchees.get(0) + 1));
+            return;
+        }
+        if (x1 - x0 == 1 && y1 - y0 == 1) {
+            cellules.put(y0 * nx + x0, CELLULE_FRONTIERE);
+            return;
+        }
+
+        int xm = x1 - x0 > 1 ? (x0 + x1) >>> 1 : x1;
+        int ym = y1 - y0 > 1 ? (y0 + y1) >>> 1 : y1;
+        remplir(x0, y0, xm, ym, geometries, arbre, factory);
+        if (xm < x1) {
+            remplir(xm, y0, x1, ym, geometries, arbre, factory);
+        }
+        if (ym < y1) {
+            remplir(x0, ym, xm, y1, geometries, arbre, factory);
+            if (xm < x1) {
+                remplir(xm, ym, x1, y1, geometries, arbre, factory);
+            }
+        }
+    }
+
+    private void remplirBloc(int x0, int y0, int x1, int y1, short valeur) {
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                cellules.put(y * nx + x, valeur);
+            }
+        }
+    }
+
+    /**
+     * Classe un point
+     *
+     * @return Indice de la géométrie, AUCUNE, FRONTIERE ou HORS_GRILLE
+     */
+    public int cellule(double longitude, double latitude) {
+        int x = (int) Math.floor((longitude - minX) / pas);
+        int y = (int) Math.floor((latitude - minY) / pas);
+        if (x < 0 || y < 0 || x >= nx || y >= ny) {
+            return HORS_GRILLE;
+        }
+        short valeur = cellules.get(y * nx + x);
+        if (valeur == 0) {
+            return AUCUNE;
+        }
+        return valeur == CELLULE_FRONTIERE ? FRONTIERE : valeur - 1;
+    }
+
+    /**
+     * Proportion de cellules frontière parmi les cellules touchées par une géométrie
+     */
+    public double tauxFrontiere() {
+        long frontiere = 0;
+        long touchees = 0;
+        for (int i = 0; i < nx * ny; i++) {
+            short valeur = cellules.get(i);
+            if (valeur != 0) {
+                touchees++;
+                if (valeur == CELLULE_FRONTIERE) {
+                    frontiere++;
+                }
+            }
+        }
+        return touchees == 0 ? 0 : (double) frontiere / touchees;
+    }
+
+    public int getNombreCellules() {
+        return nx * ny;
+    }
+
+    /**
+     * Enregistre la grille dans un fichier (écriture dans un fichier temporaire puis déplacement)
+     *
+     * @param fichier   Fichier de cache
+     * @param empreinte Empreinte des géométries sources
+     */
+    public void ecrire(Path fichier, String empreinte) throws IOException {
+        byte[] cle = empreinte.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer tampon = ByteBuffer.allocate(8 + cle.length + 24 + 8 + 2 * nx * ny);
+        tampon.putInt(MAGIE).putInt(cle.length).put(cle)
+                .putDouble(minX).putDouble(minY).putDouble(pas)
+                .putInt(nx).putInt(ny);
+        for (int i = 0; i < nx * ny; i++) {
+            tampon.putShort(cellules.get(i));
+        }
+        tampon.flip();
+
+        if (fichier.getParent() != null) {
+            Files.createDirectories(fichier.getParent());
+        }
+        Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (tampon.hasRemaining()) {
+                canal.write(tampon);
+            }
+        }
+        Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Projette en mémoire une grille enregistrée, si elle correspond aux géométries
+     *
+     * @param fichier   Fichier de cache
+     * @param empreinte Empreinte attendue des géométries sources
+     * @param pas       Pas attendu
+     * @return Grille, ou null si le fichier est absent, d'un autre format ou périmé
+     */
+    public static GrilleProvinces charger(Path fichier, String empreinte, double pas) throws IOException {
+        if (!Files.isRegularFile(fichier)) {
+            return null;
+        }
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            ByteBuffer tampon = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            if (tampon.remaining() < 8 || tampon.getInt() != MAGIE) {
+                return null;
+            }
+            byte[] cle = new byte[tampon.getInt()];
+            if (cle.length > tampon.remaining()) {
+                return null;
+            }
+            tampon.get(cle);
+            if (!empreinte.equals(new String(cle, StandardCharsets.UTF_8))) {
+                return null;
+            }
+            double minX = tampon.getDouble();
+            double minY = tampon.getDouble();
+            double pasFichier = tampon.getDouble();
+            int nx = tampon.getInt();
+            int ny = tampon.getInt();
+            if (pasFichier != pas || tampon.remaining() != 2L * nx * ny) {
+                return null;
+            }
+            // La projection reste valide après fermeture du canal
+            return new GrilleProvinces(minX, minY, pas, nx, ny, tampon.slice().asShortBuffer());
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package ma.ehtp.geoinfo.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Grille hexagonale hiérarchique (inspirée de H3), en Java pur
+ *
+ * Les hexagones (sommet en haut) sont tracés sur la projection cylindrique
+ * équivalente de Lambert (x = R.lon, y = R.sin(lat)) : toutes les cellules
+ * d'une résolution ont la même surface, ce qui permet de comparer
+ * équitablement les densités entre quartiers.
+ *
+ * Comme pour H3, l'arête est divisée par racine(7) à chaque résolution
+ * (résolution 0 : ~1108 km, 5 : ~8,5 km, 7 : ~1,2 km, 9 : ~170 m) et le
+ * parent d'une cellule est la cellule de résolution inférieure contenant
+ * son centre.
+ *
+ * Identifiant (long) : résolution sur 4 bits, puis coordonnées axiales
+ * q et r sur 30 bits chacune (complément à deux).
+ */
+public final class HexGrid {
+
+    public static final int RESOLUTION_MAX = 15;
+
+    /**
+     * Écart maximal de résolution pour enfants() : 7^4 = 2 401 cellules
+     */
+    public static final int ECART_ENFANTS_MAX = 4;
+
+    private static final double RAYON_TERRE = 6_371_007.2; // Rayon authalique (m)
+    private static final double ARETE_RESOLUTION_0 = 1_107_712.591;
+    private static final double RACINE_3 = Math.sqrt(3);
+    private static final double RACINE_7 = Math.sqrt(7);
+
+    private static final int BITS_COORDONNEE = 30;
+    private static final long MASQUE_COORDONNEE = (1L << BITS_COORDONNEE) - 1;
+
+    private HexGrid() {
+    }
+
+    /**
+     * Cellule contenant un point
+     *
+     * @param latitude   Latitude WGS84
+     * @param longitude  Longitude WGS84
+     * @param resolution Résolution (0 à 15)
+     * @return Identifiant de la cellule
+     */
+    public static long cellule(double latitude, double longitude, int resolution) {
+        validerResolution(resolution);
+        double arete = arete(resolution);
+        double x = RAYON_TERRE * Math.toRadians(longitude) / arete;
+        double y = RAYON_TERRE * Math.sin(Math.toRadians(latitude)) / arete;
+
+        // Coordonnées axiales fractionnaires puis arrondi cubique
+        double qf = RACINE_3 / 3 * x - y / 3;
+        double rf = 2.0 / 3 * y;
+        double sf = -qf - rf;
+
+        long q = Math.round(qf);
+        long r = Math.round(rf);
+        long s = Math.round(sf);
+        double dq = Math.abs(q - qf);
+        double dr = Math.abs(r - rf);
+        double ds = Math.abs(s - sf);
+        if (dq > dr && dq > ds) {
+            q = -r - s;
+        } else if (dr > ds) {
+            r = -q - s;
+        }
+
+        return encoder(resolution, q, r);
+    }
+
+    /**
+     * Centre d'une cellule
+     *
+     * @return [latitude, longitude]
+     */
+    public static double[] centre(long cellule) {
+        int resolution = resolution(cellule);
+        double arete = arete(resolution);
+        long q = coordonnee(cellule >>> BITS_COORDONNEE);
+        long r = coordonnee(cellule);
+        return versLatLon(arete * (RACINE_3 * q + RACINE_3 / 2 * r), arete * 1.5 * r);
+    }
+
+    /**
+     * Sommets d'une cellule (6 points, sens trigonométrique)
+     *
+     * @return Tableau de [latitude, longitude]
+     */
+    public static double[][] contour(long cellule) {
+        int resolution = resolution(cellule);
+        double arete = arete(resolution);
+        long q = coordonnee(cellule >>> BITS_COORDONNEE);
+        long r = coordonnee(cellule);
+        double cx = arete * (RACINE_3 * q + RACINE_3 / 2 * r);
+        double cy = arete * 1.5 * r;
+
+        double[][] sommets = new double[6][];
+        for (int k = 0; k < 6; k++) {
+            double angle = Math.toRadians(60 * k + 30);
+            sommets[k] = versLatLon(cx + arete * Math.cos(angle), cy + arete * Math.sin(angle));
+        }
+        return sommets;
+    }
+
+    /**
+     * Cellule parente (résolution inférieure contenant le centre)
+     */
+    public static long parent(long cellule, int resolutionParent) {
+        if (resolutionParent > resolution(cellule)) {
+            throw new IllegalArgumentException("La résolution du parent doit être inférieure à celle de la cellule");
+        }
+        double[] centre = centre(cellule);
+        return cellule(centre[0], centre[1], resolutionParent);
+    }
+
+    /**
+     * Cellules filles : cellules de la résolution demandée dont le centre est
+     * dans la cellule (réciproque de parent). Comme pour H3, les enfants ne
+     * recouvrent pas exactement le parent : leurs bords débordent sur les
+     * cellules voisines.
+     *
+     * @param cellule          Cellule parente
+     * @param resolutionEnfant Résolution des enfants (supérieure ou égale, au plus
+     *                         ECART_ENFANTS_MAX de plus que la cellule)
+     * @return Identifiants des enfants
+     */
+    public static List<Long> enfants(long cellule, int resolutionEnfant) {
+        validerResolution(resolutionEnfant);
+        if (!estValide(cellule)) {
+            throw new IllegalArgumentException("Cellule invalide : " + cellule);
+        }
+        int resolution = resolution(cellule);
+        if (resolutionEnfant < resolution) {
+            throw new IllegalArgumentException("La résolution des enfants doit être supérieure à celle de la cellule");
+        }
+        if (resolutionEnfant - resolution > ECART_ENFANTS_MAX) {
+            throw new IllegalArgumentException("Écart de résolution trop grand (" + (resolutionEnfant - resolution)
+                    + ", au plus " + ECART_ENFANTS_MAX + ")");
+        }
+        double[] centre = centre(cellule);
+        long central = cellule(centre[0], centre[1], resolutionEnfant);
+        long q0 = coordonnee(central >>> BITS_COORDONNEE);
+        long r0 = coordonnee(central);
+
+        // Un centre d'enfant à distance hexagonale k est à au moins 1,5.k arêtes
+        // filles du centre du parent, lui-même à au plus une arête parente du bord
+        long k = (long) Math.ceil(arete(resolution) / (1.5 * arete(resolutionEnfant))) + 1;
+        List<Long> enfants = new ArrayList<>();
+        for (long dq = -k; dq <= k; dq++) {
+            for (long dr = Math.max(-k, -dq - k); dr <= Math.min(k, -dq + k); dr++) {
+                long candidat = encoder(resolutionEnfant, q0 + dq, r0 + dr);
+                if (parent(candidat, resolution) == cellule) {
+                    enfants.add(candidat);
+                }
+            }
+        }
+        return enfants;
+    }
+
+    /**
+     * Indique si un identifiant désigne une cellule existante : résolution
+     * valide et centre à moins d'une arête de la projection (une cellule contenant
+     * un point a son centre à au plus une arête de ce point)
+     */
+    public static boolean estValide(long cellule) {
+        int resolution = resolution(cellule);
+        if (resolution > RESOLUTION_MAX) {
+            return false;
+        }
+        double arete = arete(resolution);
+        long q = coordonnee(cellule >>> BITS_COORDONNEE);
+        long r = coordonnee(cellule);
+        double x = arete * (RACINE_3 * q + RACINE_3 / 2 * r);
+        double y = arete * 1.5 * r;
+        return Math.abs(x) <= Math.PI * RAYON_TERRE + arete && Math.abs(y) <= RAYON_TERRE + arete;
+    }
+
+    /**
+     * Résolution d'une cellule
+     */
+    public static int resolution(long cellule) {
+        return (int) (cellule >>> (2 * BITS_COORDONNEE));
+    }
+
+    /**
+     * Longueur moyenne d'une arête en mètres
+     */
+    public static double arete(int resolution) {
+        return ARETE_RESOLUTION_0 / Math.pow(RACINE_7, resolution);
+    }
+
+    public static void validerResolution(int resolution) {
+        if (resolution < 0 || resolution > RESOLUTION_MAX) {
+            throw new IllegalArgumentException("Résolution invalide : " + resolution + " (0 à " + RESOLUTION_MAX + ")");
+        }
+    }
+
+    private static long encoder(int resolution, long q, long r) {
+        return ((long) resolution << (2 * BITS_COORDONNEE))
+                | ((q & MASQUE_COORDONNEE) << BITS_COORDONNEE)
+                | (r & MASQUE_COORDONNEE);
+    }
+
+    /**
+     * Décode une coordonnée signée de 30 bits
+     */
+    private static long coordonnee(long bits) {
+        long valeur = bits & MASQUE_COORDONNEE;
+        return (valeur << (64 - BITS_COORDONNEE)) >> (64 - BITS_COORDONNEE);
+    }
+
+    private static double[] versLatLon(double x, double y) {
+        double sinLat = Math.max(-1, Math.min(1, y / RAYON_TERRE));
+        return new double[] { Math.toDegrees(Math.asin(sinLat)), Math.toDegrees(x / RAYON_TERRE) };
+    }
+}
@@ -0,0 +1,131 @@
+package ma.ehtp.geoinfo.geo;
+
+/**
+ * Calculs de tuiles Web Mercator (schéma XYZ / slippy map)
+ *
+ * Les coordonnées projetées sont normalisées dans [0, 1[ (x vers l'est,
+ * y vers le sud). Les codes de Morton sont calculés au zoom ZOOM_INDEX :
+ * tous les points d'une tuile (z, x, y) avec z <= ZOOM_INDEX forment
+ * alors un intervalle contigu de codes.
+ */
+public final class TileMath {
+
+    /**
+     * Zoom de référence des codes de Morton (24 bits par axe)
+     */
+    public static final int ZOOM_INDEX = 24;
+
+    /**
+     * Latitude maximale représentable en Web Mercator
+     */
+    public static final double LATITUDE_MAX = 85.05112878;
+
+    private TileMath() {
+    }
+
+    /**
+     * Abscisse Mercator normalisée [0, 1[
+     */
+    public static double mercatorX(double longitude) {
+        double x = (longitude + 180.0) / 360.0;
+        return Math.min(Math.max(x, 0.0), Math.nextDown(1.0));
+    }
+
+    /**
+     * Ordonnée Mercator normalisée [0, 1[ (0 au nord)
+     */
+    public static double mercatorY(double latitude) {
+        double lat = Math.toRadians(Math.max(-LATITUDE_MAX, Math.min(LATITUDE_MAX, latitude)));
+        double y = (1.0 - Math.log(Math.tan(lat) + 1.0 / Math.cos(lat)) / Math.PI) / 2.0;
+        return Math.min(Math.max(y, 0.0), Math.nextDown(1.0));
+    }
+
+    /**
+     * Longitude du bord ouest de la colonne de tuiles x au zoom z
+     */
+    public static double longitude(double x, int z) {
+        return x / (1L << z) * 360.0 - 180.0;
+    }
+
+    /**
+     * Latitude du bord nord de la ligne de tuiles y au zoom z
+     */
+    public static double latitude(double y, int z) {
+        double n = Math.PI - 2.0 * Math.PI * y / (1L << z);
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    /**
+     * Colonne de la tuile contenant la longitude au zoom z
+     */
+    public static int tuileX(double longitude, int z) {
+        return (int) (mercatorX(longitude) * (1L << z));
+    }
+
+    /**
+     * Ligne de la tuile contenant la latitude au zoom z
+     */
+    public static int tuileY(double latitude, int z) {
+        return (int) (mercatorY(latitude) * (1L << z));
+    }
+
+    /**
+     * Code de Morton d'un point au zoom ZOOM_INDEX
+     */
+    public static long morton(double longitude, double latitude) {
+        int x = (int) (mercatorX(longitude) * (1L << ZOOM_INDEX));
+        int y = (int) (mercatorY(latitude) * (1L << ZOOM_INDEX));
+        return entrelacer(x, y);
+    }
+
+    /**
+     * Premier code de Morton (inclus) de la tuile (z, x, y)
+     */
+    public static long mortonDebut(int z, int x, int y) {
+        return entrelacer(x, y) << (2 * (ZOOM_INDEX - z));
+    }
+
+    /**
+     * Dernier code de Morton (exclu) de la tuile (z, x, y)
+     */
+    public static long mortonFin(int z, int x, int y) {
+        return (entrelacer(x, y) + 1) << (2 * (ZOOM_INDEX - z));
+    }
+
+    /**
+     * Clé unique d'une tuile (z, x, y), utilisable comme clé de cache
+     */
+    public static long cle(int z, int x, int y) {
+        return ((long) z << 58) | ((long) x << 29) | y;
+    }
+
+    /**
+     * Vérifie qu'une tuile existe au zoom donné
+     */
+    public static void valider(int z, int x, int y) {
+        if (z < 0 || z > ZOOM_INDEX) {
+            throw new IllegalArgumentException("Zoom invalide : " + z + " (0 à " + ZOOM_INDEX + ")");
+        }
+        long n = 1L << z;
+        if (x < 0 || x >= n || y < 0 || y >= n) {
+            throw new IllegalArgumentException("Tuile invalide : " + z + "/" + x + "/" + y);
+        }
+    }
+
+    /**
+     * Entrelace les bits de x (rangs pairs) et de y (rangs impairs)
+     */
+    private static long entrelacer(int x, int y) {
+        return etaler(x) | (etaler(y) << 1);
+    }
+
+    private static long etaler(int valeur) {
+        long v = valeur & 0xFFFFFFFFL;
+        v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+        return v;
+    }
+}
@@ -0,0 +1,319 @@
+package ma.ehtp.geoinfo.geo;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encodeur TopoJSON pour des polygones adjacents (provinces)
+ *
+ * 1. Les coordonnées sont quantifiées sur une grille entière de q x q points
+ *    couvrant l'emprise totale (transform scale/translate).
+ * 2. Un sommet est une jonction lorsque ses voisins diffèrent d'un anneau à
+ *    l'autre (début ou fin d'une frontière commune).
+ * 3. Les anneaux sont découpés aux jonctions en arcs ; un arc déjà rencontré,
+ *    dans un sens ou dans l'autre, est référencé au lieu d'être répété
+ *    (index i, ou ~i s'il est parcouru à l'envers).
+ * 4. Les arcs sont écrits en coordonnées delta (premier point absolu).
+ *
+ * Chaque frontière commune n'est ainsi encodée qu'une seule fois.
+ */
+public final class TopoJsonEncoder {
+
+    private static final JsonStringEncoder JSON = JsonStringEncoder.getInstance();
+
+    /**
+     * Entité à encoder : identifiant, propriétés et géométrie (Polygon ou MultiPolygon)
+     */
+    public record Entite(Long id, String nom, String code, Geometry geometrie) {
+    }
+
+    private TopoJsonEncoder() {
+    }
+
+    /**
+     * Encode les entités en un document TopoJSON (objet "provinces")
+     *
+     * @param entites        Entités avec géométrie
+     * @param quantification Nombre de points de la grille par axe (ex: 1e5)
+     * @return Document TopoJSON
+     */
+    public static String encoder(List<Entite> entites, int quantification) {
+        Envelope emprise = new Envelope();
+        for (Entite entite : entites) {
+            emprise.expandToInclude(entite.geometrie().getEnvelopeInternal());
+        }
+        double x0 = emprise.isNull() ? 0 : emprise.getMinX();
+        double y0 = emprise.isNull() ? 0 : emprise.getMinY();
+        double kx = emprise.isNull() || emprise.getWidth() == 0 ? 1 : emprise.getWidth() / (quantification - 1);
+        double ky = emprise.isNull() || emprise.getHeight() == 0 ? 1 : emprise.getHeight() / (quantification - 1);
+
+        // Anneaux quantifiés : entité → polygones → anneaux (ouverts, sans point de fermeture)
+        List<List<List<long[]>>> anneauxParEntite = new ArrayList<>();
+        for (Entite entite : entites) {
+            List<List<long[]>> polygones = new ArrayList<>();
+            for (int i = 0; i < entite.geometrie().getNumGeometries(); i++) {
+                Geometry partie = entite.geometrie().getGeometryN(i);
+                if (!(partie instanceof Polygon polygone)) {
+                    continue;
+                }
+                long[] exterieur = quantifier(polygone.getExteriorRing(), x0, y0, kx, ky);
+                if (exterieur == null) {
+                    continue;
+                }
+                List<long[]> anneaux = new ArrayList<>();
+                anneaux.add(exterieur);
+                for (int t = 0; t < polygone.getNumInteriorRing(); t++) {
+                    long[] trou = quantifier(polygone.getInteriorRingN(t), x0, y0, kx, ky);
+                    if (trou != null) {
+                        anneaux.add(trou);
+                    }
+                }
+                polygones.add(anneaux);
+            }
+            anneauxParEntite.add(polygones);
+        }
+
+        Set<Long> jonctions = jonctions(anneauxParEntite);
+
+        // Découpage en arcs et déduplication
+        List<long[]> arcs = new ArrayList<>();
+        Map<Arc, Integer> indexArcs = new HashMap<>();
+        List<List<List<List<Integer>>>> references = new ArrayList<>();
+        for (List<List<long[]>> polygones : anneauxParEntite) {
+            List<List<List<Integer>>> refsPolygones = new ArrayList<>();
+            for (List<long[]> anneaux : polygones) {
+                List<List<Integer>> refsAnneaux = new ArrayList<>();
+                for (long[] anneau : anneaux) {
+                    List<Integer> refs = new ArrayList<>();
+                    for (long[] arc : decouper(anneau, jonctions)) {
+                        refs.add(referencer(arc, arcs, indexArcs));
+                    }
+                    refsAnneaux.add(refs);
+                }
+                refsPolygones.add(refsAnneaux);
+            }
+            references.add(refsPolygones);
+        }
+
+        return ecrire(entites, references, arcs, x0, y0, kx, ky);
+    }
+
+    /**
+     * Quantifie un anneau et supprime les points consécutifs confondus
+     *
+     * @return Points empaquetés (x << 32 | y), null si l'anneau dégénère
+     */
+    private static long[] quantifier(LineString anneau, double x0, double y0, double kx, double ky) {
+        Coordinate[] coordonnees = anneau.getCoordinates();
+        long[] points = new long[coordonnees.length];
+        int n = 0;
+        for (Coordinate c : coordonnees) {
+            long x = Math.round((c.x - x0) / kx);
+            long y = Math.round((c.y - y0) / ky);
+            long point = (x << 32) | y;
+            if (n == 0 || points[n - 1] != point) {
+                points[n++] = point;
+            }
+        }
+        // Anneau ouvert : le point de fermeture est implicite
+        while (n > 1 && points[n - 1] == points[0]) {
+            n--;
+        }
+        return n >= 3 ? Arrays.copyOf(points, n) : null;
+    }
+
+    /**
+     * Sommets dont la paire de voisins n'est pas la même dans tous les anneaux
+     */
+    private static Set<Long> jonctions(List<List<List<long[]>>> anneauxParEntite) {
+        Map<Long, long[]> voisins = new HashMap<>();
+        Set<Long> jonctions = new HashSet<>();
+        for (List<List<long[]>> polygones : anneauxParEntite) {
+            for (List<long[]> anneaux : polygones) {
+                for (long[] anneau : anneaux) {
+                    int n = anneau.length;
+                    for (int i = 0; i < n; i++) {
+                        long a = anneau[(i - 1 + n) % n];
+                        long b = anneau[(i + 1) % n];
+                        long[] paire = { Math.min(a, b), Math.max(a, b) };
+                        long[] connue = voisins.putIfAbsent(anneau[i], paire);
+                        if (connue != null && (connue[0] != paire[0] || connue[1] != paire[1])) {
+                            jonctions.add(anneau[i]);
+                        }
+                    }
+                }
+            }
+        }
+        return jonctions;
+    }
+
+    /**
+     * Découpe un anneau aux jonctions (un seul arc fermé s'il n'en contient aucune)
+     */
+    private static List<long[]> decouper(long[] anneau, Set<Long> jonctions) {
+        int n = anneau.length;
+        int depart = -1;
+        for (int i = 0; i < n; i++) {
+            if (jonctions.contains(anneau[i])) {
+                depart = i;
+                break;
+            }
+        }
+
+        List<long[]> arcs = new ArrayList<>();
+        if (depart < 0) {
+            // Anneau isolé : départ au plus petit point pour reconnaître un anneau identique
+            int min = 0;
+            for (int i = 1; i < n; i++) {
+                if (anneau[i] < anneau[min]) {
+                    min = i;
+                }
+            }
+            long[] arc = new long[n + 1];
+            for (int i = 0; i <= n; i++) {
+                arc[i] = anneau[(min + i) % n];
+            }
+            arcs.add(arc);
+            return arcs;
+        }
+
+        int debut = 0;
+        long[] parcours = new long[n + 1];
+        for (int i = 0; i <= n; i++) {
+            parcours[i] = anneau[(depart + i) % n];
+            if (i > 0 && jonctions.contains(parcours[i])) {
+                arcs.add(Arrays.copyOfRange(parcours, debut, i + 1));
+                debut = i;
+            }
+        }
+        return arcs;
+    }
+
+    /**
+     * Index de l'arc (ou ~index s'il existe déjà à l'envers), ajouté s'il est nouveau
+     */
+    private static int referencer(long[] arc, List<long[]> arcs, Map<Arc, Integer> indexArcs) {
+        Integer index = indexArcs.get(new Arc(arc));
+        if (index != null) {
+            return index;
+        }
+        long[] inverse = new long[arc.length];
+        for (int i = 0; i < arc.length; i++) {
+            inverse[i] = arc[arc.length - 1 - i];
+        }
+        index = indexArcs.get(new Arc(inverse));
+        if (index != null) {
+            return ~index;
+        }
+        arcs.add(arc);
+        indexArcs.put(new Arc(arc), arcs.size() - 1);
+        return arcs.size() - 1;
+    }
+
+    private static String ecrire(List<Entite> entites, List<List<List<List<Integer>>>> references,
+            List<long[]> arcs, double x0, double y0, double kx, double ky) {
+        StringBuilder json = new StringBuilder(arcs.size() * 64 + entites.size() * 128);
+        json.append("{\"type\":\"Topology\",\"transform\":{\"scale\":[")
+                .append(kx).append(',').append(ky).append("],\"translate\":[")
+                .append(x0).append(',').append(y0).append("]},")
+                .append("\"objects\":{\"provinces\":{\"type\":\"GeometryCollection\",\"geometries\":[");
+
+        boolean premiere = true;
+        for (int e = 0; e < entites.size(); e++) {
+            List<List<List<Integer>>> polygones = references.get(e);
+            if (polygones.isEmpty()) {
+                continue;
+            }
+            Entite entite = entites.get(e);
+            if (!premiere) {
+                json.append(',');
+            }
+            premiere = false;
+
+            json.append("{\"type\":\"MultiPolygon\",\"id\":").append(entite.id()).append(",\"arcs\":[");
+            for (int p = 0; p < polygones.size(); p++) {
+                json.append(p > 0 ? ",[" : "[");
+                List<List<Integer>> anneaux = polygones.get(p);
+                for (int a = 0; a < anneaux.size(); a++) {
+                    json.append(a > 0 ? ",[" : "[");
+                    List<Integer> refs = anneaux.get(a);
+                    for (int r = 0; r < refs.size(); r++) {
+                        if (r > 0) {
+                            json.append(',');
+                        }
+                        json.append(refs.get(r));
+                    }
+                    json.append(']');
+                }
+                json.append(']');
+            }
+            json.append("],\"properties\":{\"id\":").append(entite.id())
+                    .append(",\"nom\":").append(chaine(entite.nom()))
+                    .append(",\"code\":").append(chaine(entite.code()))
+                    .append("}}");
+        }
+
+        json.append("]}},\"arcs\":[");
+        for (int i = 0; i < arcs.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            long[] arc = arcs.get(i);
+            json.append('[');
+            int px = 0;
+            int py = 0;
+            for (int j = 0; j < arc.length; j++) {
+                int x = (int) (arc[j] >>> 32);
+                int y = (int) arc[j];
+                if (j > 0) {
+                    json.append(',');
+                }
+                json.append('[').append(x - px).append(',').append(y - py).append(']');
+                px = x;
+                py = y;
+            }
+            json.append(']');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String chaine(String valeur) {
+        return valeur == null ? "null" : "\"" + new String(JSON.quoteAsString(valeur)) + "\"";
+    }
+
+    /**
+     * Clé de déduplication d'un arc (égalité sur le contenu)
+     */
+    private static final class Arc {
+
+        private final long[] points;
+        private final int hash;
+
+        Arc(long[] points) {
+            this.points = points;
+            this.hash = Arrays.hashCode(points);
+        }
+
+        @Override
+        public boolean equals(Object autre) {
+            return autre instanceof Arc arc && Arrays.equals(points, arc.points);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
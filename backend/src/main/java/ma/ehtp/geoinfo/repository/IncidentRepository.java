@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -88,6 +89,29 @@ public interface IncidentRepository extends JpaRepository<Incident, Long> {
          */
         long countBySecteur(Secteur secteur);
 
+        /**
+         * Nombre d'incidents référençant une photo (comptage de références
+         * des fichiers adressés par contenu)
+         * Comparaison sur le nom du fichier (dernier segment de photo_url) :
+         * les URLs enregistrées avec une autre base (ancien hôte, CDN, S3)
+         * désignent le même fichier
+         */
+        @Query(value = "SELECT COUNT(*) FROM incidents i WHERE i.photo_url = :nom"
+                        + " OR right(i.photo_url, length(:nom) + 1) = '/' || :nom", nativeQuery = true)
+        long countByNomPhoto(@Param("nom") String nomFichier);
+
+        /**
+         * Nombre d'incidents référençant une variante : directement (URL de
+         * miniature ou web) ou via leur original, de même nom de base quelle que
+         * soit son extension
+         */
+        @Query(value = "SELECT COUNT(*) FROM incidents i"
+                        + " WHERE right(i.photo_miniature_url, length(:nom) + 1) = '/' || :nom"
+                        + " OR right(i.photo_web_url, length(:nom) + 1) = '/' || :nom"
+                        + " OR left(substring(i.photo_url from '[^/]*$'), length(:base) + 1) = :base || '.'",
+                        nativeQuery = true)
+        long countByNomVariante(@Param("nom") String nomVariante, @Param("base") String nomBase);
+
         /**
          * Recherche multi-critères
          */
@@ -111,4 +135,151 @@ public interface IncidentRepository extends JpaRepository<Incident, Long> {
          * Compte les incidents en excluant certains statuts (pour statistiques)
          */
         long countByStatutNotIn(List<Incident.StatutIncident> statuts);
+
+        /**
+         * Agrège les statistiques en un seul aller-retour (GROUPING SETS)
+         * Aucune entité n'est chargée : une ligne par valeur de chaque dimension
+         *
+         * Colonnes : [dimension (STATUT|SECTEUR|PROVINCE|TYPE), cle, nombre,
+         * nombrePublic (hors REDIGE et BLOQUE), delaiMoyenHeures]
+         * Le délai moyen (incidents TRAITE depuis dateLimite, délais d'au moins une
+         * heure) est identique sur toutes les lignes
+         *
+         * @param dateLimite Début de la fenêtre de calcul du délai moyen
+         * @return Tuples agrégés
+         */
+        @Query(value = """
+                        SELECT CASE WHEN GROUPING(i.statut) = 0 THEN 'STATUT'
+                                    WHEN GROUPING(s.nom) = 0 THEN 'SECTEUR'
+                                    WHEN GROUPING(i.province) = 0 THEN 'PROVINCE'
+                                    ELSE 'TYPE' END AS dimension,
+                               COALESCE(i.statut, s.nom, i.province, i.type_incident) AS cle,
+                               COUNT(*) AS nombre,
+                               COUNT(*) FILTER (WHERE i.statut NOT IN ('REDIGE', 'BLOQUE')) AS nombre_public,
+                               (SELECT EXTRACT(EPOCH FROM AVG(t.date_traitement - t.date_declaration)) / 3600.0
+                                  FROM incidents t
+                                 WHERE t.statut = 'TRAITE'
+                                   AND t.date_traitement > :dateLimite
+                                   AND t.date_traitement - t.date_declaration >= INTERVAL '1 hour') AS delai_moyen_heures
+                        FROM incidents i
+                        JOIN secteurs s ON s.id = i.secteur_id
+                        GROUP BY GROUPING SETS ((i.statut), (i.secteur_id, s.nom), (i.province), (i.type_incident))
+                        """, nativeQuery = true)
+        List<Object[]> aggregateStatistiques(@Param("dateLimite") LocalDateTime dateLimite);
+
+        /**
+         * Délais de traitement des incidents TRAITE depuis dateLimite
+         * Valeurs primitives uniquement (initialisation des histogrammes de délais)
+         *
+         * @return Tuples [nomSecteur, province, delaiMinutes, epochTraitementSecondes]
+         */
+        @Query(value = """
+                        SELECT s.nom,
+                               i.province,
+                               EXTRACT(EPOCH FROM (i.date_traitement - i.date_declaration)) / 60,
+                               EXTRACT(EPOCH FROM i.date_traitement)
+                        FROM incidents i
+                        JOIN secteurs s ON s.id = i.secteur_id
+                        WHERE i.statut = 'TRAITE'
+                          AND i.date_traitement > :dateLimite
+                          AND i.date_traitement >= i.date_declaration
+                        """, nativeQuery = true)
+        List<Object[]> findDelaisTraitementDepuis(@Param("dateLimite") LocalDateTime dateLimite);
+
+        /**
+         * Agrège les incidents d'un secteur en un seul aller-retour (GROUPING SETS)
+         *
+         * Colonnes : [dimension (STATUT|PROVINCE|TYPE), cle, nombre]
+         *
+         * @param secteurId ID du secteur
+         * @return Tuples agrégés
+         */
+        @Query(value = """
+                        SELECT CASE WHEN GROUPING(i.statut) = 0 THEN 'STATUT'
+                                    WHEN GROUPING(i.province) = 0 THEN 'PROVINCE'
+                                    ELSE 'TYPE' END AS dimension,
+                               COALESCE(i.statut, i.province, i.type_incident) AS cle,
+                               COUNT(*) AS nombre
+                        FROM incidents i
+                        WHERE i.secteur_id = :secteurId
+                        GROUP BY GROUPING SETS ((i.statut), (i.province), (i.type_incident))
+                        """, nativeQuery = true)
+        List<Object[]> aggregateSecteur(@Param("secteurId") Long secteurId);
+
+        /**
+         * Trouve les incidents d'un statut dans une emprise (index GiST sur location)
+         * Triés du plus récent au plus ancien, limités à :limite résultats
+         */
+        @Query(value = """
+                        SELECT i.* FROM incidents i
+                        WHERE i.statut = :statut
+                          AND i.location && ST_MakeEnvelope(:minLon, :minLat, :maxLon, :maxLat, 4326)
+                        ORDER BY i.date_declaration DESC
+                        LIMIT :limite
+                        """, nativeQuery = true)
+        List<Incident> findByStatutDansEmprise(@Param("statut") String statut,
+                        @Param("minLon") double minLon,
+                        @Param("minLat") double minLat,
+                        @Param("maxLon") double maxLon,
+                        @Param("maxLat") double maxLat,
+                        @Param("limite") int limite);
+
+        /**
+         * Incidents déclarés ou modifiés après le curseur (date de modification, id)
+         * Hors REDIGE : un incident rédigé n'a jamais été visible sur la carte
+         * Triés par curseur croissant, limités à :limite résultats
+         */
+        @Query(value = """
+                        SELECT i.* FROM incidents i
+                        WHERE i.statut <> 'REDIGE'
+                          AND (COALESCE(i.date_modification, i.date_declaration), i.id) > (:depuis, :depuisId)
+                          AND (:touteEmprise = true
+                               OR i.location && ST_MakeEnvelope(:minLon, :minLat, :maxLon, :maxLat, 4326))
+                        ORDER BY COALESCE(i.date_modification, i.date_declaration), i.id
+                        LIMIT :limite
+                        """, nativeQuery = true)
+        List<Incident> findModifiesDepuis(@Param("depuis") LocalDateTime depuis,
+                        @Param("depuisId") long depuisId,
+                        @Param("touteEmprise") boolean touteEmprise,
+                        @Param("minLon") double minLon,
+                        @Param("minLat") double minLat,
+                        @Param("maxLon") double maxLon,
+                        @Param("maxLat") double maxLat,
+                        @Param("limite") int limite);
+
+        /**
+         * Coordonnées des incidents publiés sur la carte (VALIDE)
+         * Valeurs primitives pour l'index spatial en mémoire
+         *
+         * @return Tuples [id, longitude, latitude, statut, secteurId]
+         */
+        @Query(value = """
+                        SELECT i.id, i.longitude, i.latitude, i.statut, i.secteur_id
+                        FROM incidents i
+                        WHERE i.statut = 'VALIDE'
+                        """, nativeQuery = true)
+        List<Object[]> findPointsCartePublique();
+
+        /**
+         * Marqueurs de la carte (colonnes minimales) pour un statut,
+         * dans une emprise si :touteEmprise est faux
+         *
+         * @return Tuples [id, longitude, latitude, statut, secteurId]
+         */
+        @Query(value = """
+                        SELECT i.id, i.longitude, i.latitude, i.statut, i.secteur_id
+                        FROM incidents i
+                        WHERE i.statut = :statut
+                          AND (:touteEmprise = true
+                               OR i.location && ST_MakeEnvelope(:minLon, :minLat, :maxLon, :maxLat, 4326))
+                        ORDER BY i.date_declaration DESC
+                        LIMIT :limite
+                        """, nativeQuery = true)
+        List<Object[]> findPointsCarte(@Param("statut") String statut,
+                        @Param("touteEmprise") boolean touteEmprise,
+                        @Param("minLon") double minLon,
+                        @Param("minLat") double minLat,
+                        @Param("maxLon") double maxLon,
+                        @Param("maxLat") double maxLat,
+                        @Param("limite") int limite);
 }
@@ -37,4 +37,14 @@ public interface ProfessionnelRepository extends JpaRepository<Professionnel, Lo
      * Trouve tous les professionnels actifs
      */
     List<Professionnel> findByActifTrue();
+
+    /**
+     * Compte les professionnels actifs
+     */
+    long countByActifTrue();
+
+    /**
+     * Compte les professionnels actifs d'un secteur
+     */
+    long countBySecteurIdAndActifTrue(Long secteurId);
 }
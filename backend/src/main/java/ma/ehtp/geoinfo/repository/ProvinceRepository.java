@@ -23,13 +23,31 @@ public interface ProvinceRepository extends JpaRepository<Province, Long> {
 
     /**
      * Trouve la province contenant un point donné (intersection spatiale)
-     * Utilise ST_Contains de PostGIS avec cast explicite vers geometry
-     * IMPORTANT: Cast nécessaire car la colonne est stockée en type geography
+     * Le test porte sur les petits polygones de province_parts (ST_Subdivide,
+     * index GiST) et non sur les MultiPolygon complets
+     * ST_Intersects : un point situé sur une ligne de découpe interne reste trouvé
+     * Repli sur provinces.geometry pour les provinces sans découpe (table
+     * province_parts vide après un échec d'initialisation, ou province insérée
+     * avant le prochain rafraîchissement) : COALESCE n'évalue le repli que si
+     * aucune découpe ne contient le point
      * 
      * @param point Point géographique (latitude, longitude)
      * @return Province contenant ce point
      */
-    @Query(value = "SELECT * FROM provinces p WHERE p.geometry IS NOT NULL AND ST_Contains(p.geometry::geometry, :point) LIMIT 1", nativeQuery = true)
+    @Query(value = """
+            SELECT p.* FROM provinces p
+            WHERE p.id = COALESCE(
+                (SELECT pp.province_id FROM province_parts pp
+                 WHERE ST_Intersects(pp.geometry, :point)
+                 ORDER BY pp.province_id
+                 LIMIT 1),
+                (SELECT pr.id FROM provinces pr
+                 WHERE pr.geometry IS NOT NULL
+                   AND ST_Intersects(pr.geometry, :point)
+                   AND NOT EXISTS (SELECT 1 FROM province_parts pp WHERE pp.province_id = pr.id)
+                 ORDER BY pr.id
+                 LIMIT 1))
+            """, nativeQuery = true)
     Optional<Province> findProvinceContainingPoint(@Param("point") Point point);
 
     /**
@@ -5,9 +5,11 @@ import lombok.extern.slf4j.Slf4j;
 import ma.ehtp.geoinfo.dto.response.IncidentResponse;
 import ma.ehtp.geoinfo.entity.Incident;
 import ma.ehtp.geoinfo.entity.Professionnel;
+import ma.ehtp.geoinfo.event.IncidentStatutChangeEvent;
 import ma.ehtp.geoinfo.exception.ResourceNotFoundException;
 import ma.ehtp.geoinfo.repository.IncidentRepository;
 import ma.ehtp.geoinfo.repository.ProfessionnelRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +28,7 @@ public class AdminService {
 
     private final IncidentRepository incidentRepository;
     private final ProfessionnelRepository professionnelRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Récupère les incidents en attente de validation
@@ -70,6 +73,7 @@ public class AdminService {
         // Changer le statut
         incident.setStatut(Incident.StatutIncident.VALIDE);
         incident = incidentRepository.save(incident);
+        eventPublisher.publishEvent(IncidentStatutChangeEvent.of(incident, Incident.StatutIncident.REDIGE));
 
         log.info("Incident validé : id={}", incidentId);
 
@@ -104,6 +108,7 @@ public class AdminService {
         incident.setStatut(Incident.StatutIncident.REJETE);
         incident.setMotifRejet(motifRejet);
         incident = incidentRepository.save(incident);
+        eventPublisher.publishEvent(IncidentStatutChangeEvent.of(incident, Incident.StatutIncident.REDIGE));
 
         log.info("Incident rejeté : id={}", incidentId);
 
@@ -165,6 +170,8 @@ public class AdminService {
                 .nomLocal(incident.getNomLocal())
                 .localisation(incident.getLocalisation())
                 .photoUrl(incident.getPhotoUrl())
+                .photoMiniatureUrl(incident.getPhotoMiniatureUrl())
+                .photoWebUrl(incident.getPhotoWebUrl())
                 .dateDeclaration(incident.getDateDeclaration())
                 .statut(incident.getStatut().name())
                 .secteurId(incident.getSecteur().getId())
@@ -5,18 +5,28 @@ import lombok.extern.slf4j.Slf4j;
 import ma.ehtp.geoinfo.dto.request.IncidentRequest;
 import ma.ehtp.geoinfo.dto.response.AccountRecoveryResponse;
 import ma.ehtp.geoinfo.dto.response.IncidentResponse;
+import ma.ehtp.geoinfo.dto.response.SyncCarteResponse;
 import ma.ehtp.geoinfo.entity.Incident;
 import ma.ehtp.geoinfo.entity.Secteur;
 import ma.ehtp.geoinfo.entity.Utilisateur;
+import ma.ehtp.geoinfo.event.IncidentStatutChangeEvent;
+import ma.ehtp.geoinfo.event.PhotoStockeeEvent;
 import ma.ehtp.geoinfo.exception.ResourceNotFoundException;
+import ma.ehtp.geoinfo.geo.BoundingBox;
+import ma.ehtp.geoinfo.geo.HexGrid;
 import ma.ehtp.geoinfo.repository.IncidentRepository;
 import ma.ehtp.geoinfo.repository.SecteurRepository;
 import ma.ehtp.geoinfo.repository.UtilisateurRepository;
+import ma.ehtp.geoinfo.util.FormatColonnesIncidents;
 import org.locationtech.jts.geom.Point;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -29,11 +39,19 @@ import java.util.stream.Collectors;
 @Slf4j
 public class CitoyenService {
 
+    // Plafond absolu du nombre d'incidents renvoyés pour une emprise de carte
+    private static final int MAX_INCIDENTS_CARTE = 2000;
+
+    // Marge de recouvrement du curseur de synchronisation : une transaction
+    // validée après la lecture peut porter une date de modification antérieure
+    private static final long MARGE_SYNC_SECONDES = 30;
+
     private final IncidentRepository incidentRepository;
     private final SecteurRepository secteurRepository;
     private final UtilisateurRepository utilisateurRepository;
     private final FileStorageService fileStorageService;
     private final GeolocationService geolocationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Déclare un nouvel incident
@@ -81,19 +99,16 @@ public class CitoyenService {
 
         // Gérer l'upload de la photo
         String photoUrl = null;
+        String photoFilename = null;
         if (photo != null && !photo.isEmpty()) {
             // Valider l'image
             if (!fileStorageService.isValidImage(photo)) {
                 throw new IllegalArgumentException("Format d'image invalide. Formats acceptés : JPEG, PNG, WEBP");
             }
 
-            // Valider la taille (10MB max)
-            if (!fileStorageService.isValidSize(photo, 10 * 1024 * 1024)) {
-                throw new IllegalArgumentException("La taille de l'image ne doit pas dépasser 10MB");
-            }
-
-            String filename = fileStorageService.storeFile(photo);
-            photoUrl = fileStorageService.getFileUrl(filename);
+            // Taille et signature contrôlées pendant l'écriture en flux
+            photoFilename = fileStorageService.storeFile(photo);
+            photoUrl = fileStorageService.getFileUrl(photoFilename);
         }
 
         // Créer l'incident
@@ -106,6 +121,9 @@ public class CitoyenService {
         incident.setLongitude(request.getLongitude());
         incident.setLocation(location);
         incident.setProvince(province);
+        incident.setHexR5(HexGrid.cellule(request.getLatitude(), request.getLongitude(), 5));
+        incident.setHexR7(HexGrid.cellule(request.getLatitude(), request.getLongitude(), 7));
+        incident.setHexR9(HexGrid.cellule(request.getLatitude(), request.getLongitude(), 9));
         incident.setSecteur(secteur);
         incident.setPhotoUrl(photoUrl);
         incident.setDeclarant(declarant);
@@ -115,6 +133,10 @@ public class CitoyenService {
 
         // Sauvegarder
         incident = incidentRepository.save(incident);
+        eventPublisher.publishEvent(IncidentStatutChangeEvent.of(incident, null));
+        if (photoFilename != null) {
+            eventPublisher.publishEvent(new PhotoStockeeEvent(incident.getId(), photoFilename));
+        }
 
         log.info("Incident créé : id={}, province={}, statut={}", incident.getId(), province, incident.getStatut());
 
@@ -151,6 +173,143 @@ public class CitoyenService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Récupère les incidents publiés visibles dans une emprise de carte
+     * Requête spatiale sur l'index GiST, résultats plafonnés et triés par
+     * date de déclaration (plus récent en premier)
+     * 
+     * @param bbox  Emprise visible
+     * @param zoom  Niveau de zoom (optionnel, détermine la limite par défaut)
+     * @param limit Nombre maximum d'incidents (optionnel)
+     * @return Liste des incidents publiés dans l'emprise
+     */
+    @Transactional(readOnly = true)
+    public List<IncidentResponse> getIncidentsForMap(BoundingBox bbox, Integer zoom, Integer limit) {
+        int limite = Math.min(limit != null && limit > 0 ? limit : limiteParDefaut(zoom), MAX_INCIDENTS_CARTE);
+
+        List<Incident> incidents = incidentRepository.findByStatutDansEmprise(
+                Incident.StatutIncident.VALIDE.name(),
+                bbox.getMinLon(), bbox.getMinLat(), bbox.getMaxLon(), bbox.getMaxLat(),
+                limite);
+
+        log.debug("Carte : {} incident(s) dans {} (zoom={}, limite={})", incidents.size(), bbox, zoom, limite);
+
+        return incidents.stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Marqueurs de la carte au format binaire en colonnes (FormatColonnesIncidents)
+     * Mêmes incidents que getIncidentsForMap, sans charger les entités
+     *
+     * @param bbox  Emprise visible (optionnelle : toute la carte)
+     * @param zoom  Niveau de zoom (optionnel, détermine la limite par défaut)
+     * @param limit Nombre maximum d'incidents (optionnel)
+     * @return Contenu application/x-incident-columns
+     */
+    @Transactional(readOnly = true)
+    public byte[] getIncidentsForMapColonnes(BoundingBox bbox, Integer zoom, Integer limit) {
+        int limite = bbox == null && limit == null
+                ? Integer.MAX_VALUE
+                : Math.min(limit != null && limit > 0 ? limit : limiteParDefaut(zoom), MAX_INCIDENTS_CARTE);
+
+        List<Object[]> points = incidentRepository.findPointsCarte(
+                Incident.StatutIncident.VALIDE.name(),
+                bbox == null,
+                bbox != null ? bbox.getMinLon() : 0, bbox != null ? bbox.getMinLat() : 0,
+                bbox != null ? bbox.getMaxLon() : 0, bbox != null ? bbox.getMaxLat() : 0,
+                limite);
+
+        return FormatColonnesIncidents.encoder(points);
+    }
+
+    /**
+     * Synchronisation incrémentale de la carte depuis un curseur
+     * Renvoie les incidents publiés (VALIDE) créés ou modifiés depuis le curseur
+     * et, comme pierres tombales, les identifiants de ceux qui ont quitté la carte
+     *
+     * @param since Curseur renvoyé par la synchronisation précédente,
+     *              ou date ISO-8601 (ex: 2025-01-15T10:00:00)
+     * @param bbox  Emprise visible (optionnelle)
+     * @return Modifications et nouveau curseur
+     */
+    @Transactional(readOnly = true)
+    public SyncCarteResponse getModificationsCarte(String since, BoundingBox bbox) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        LocalDateTime depuis;
+        long depuisId = 0;
+        try {
+            int separateur = since.indexOf('_');
+            depuis = LocalDateTime.parse(separateur < 0 ? since : since.substring(0, separateur));
+            if (separateur >= 0) {
+                depuisId = Long.parseLong(since.substring(separateur + 1));
+            }
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Curseur de synchronisation invalide : " + since);
+        }
+
+        List<Incident> modifies = incidentRepository.findModifiesDepuis(
+                depuis, depuisId,
+                bbox == null,
+                bbox != null ? bbox.getMinLon() : 0, bbox != null ? bbox.getMinLat() : 0,
+                bbox != null ? bbox.getMaxLon() : 0, bbox != null ? bbox.getMaxLat() : 0,
+                MAX_INCIDENTS_CARTE + 1);
+
+        boolean complet = modifies.size() <= MAX_INCIDENTS_CARTE;
+        if (!complet) {
+            modifies = modifies.subList(0, MAX_INCIDENTS_CARTE);
+        }
+
+        List<IncidentResponse> incidents = new ArrayList<>();
+        List<Long> supprimes = new ArrayList<>();
+        for (Incident incident : modifies) {
+            if (incident.getStatut() == Incident.StatutIncident.VALIDE) {
+                incidents.add(mapToResponse(incident));
+            } else {
+                supprimes.add(incident.getId());
+            }
+        }
+
+        // Curseur : dernière ligne lue, sauf si elle est dans la marge de recouvrement
+        String curseur;
+        LocalDateTime limiteSure = maintenant.minusSeconds(MARGE_SYNC_SECONDES);
+        Incident dernier = modifies.isEmpty() ? null : modifies.get(modifies.size() - 1);
+        LocalDateTime dateDernier = dernier == null ? null
+                : dernier.getDateModification() != null ? dernier.getDateModification()
+                        : dernier.getDateDeclaration();
+        if (dernier != null && (!complet || dateDernier.isBefore(limiteSure))) {
+            curseur = dateDernier + "_" + dernier.getId();
+        } else if (depuis.isAfter(limiteSure)) {
+            curseur = since;
+        } else {
+            curseur = limiteSure.toString();
+        }
+
+        log.debug("Synchronisation carte depuis {} : {} modifié(s), {} retiré(s)",
+                since, incidents.size(), supprimes.size());
+
+        return SyncCarteResponse.builder()
+                .curseur(curseur)
+                .complet(complet)
+                .incidents(incidents)
+                .supprimes(supprimes)
+                .build();
+    }
+
+    /**
+     * Limite par défaut selon le zoom : moins de marqueurs sur une vue nationale
+     */
+    private int limiteParDefaut(Integer zoom) {
+        if (zoom == null) {
+            return 500;
+        }
+        if (zoom < 8) {
+            return 200;
+        }
+        return zoom < 12 ? 500 : 1000;
+    }
+
     /**
      * Récupère un compte par UUID (changement d'appareil)
      * 
@@ -199,6 +358,8 @@ public class CitoyenService {
                 .nomLocal(incident.getNomLocal())
                 .localisation(incident.getLocalisation())
                 .photoUrl(incident.getPhotoUrl())
+                .photoMiniatureUrl(incident.getPhotoMiniatureUrl())
+                .photoWebUrl(incident.getPhotoWebUrl())
                 .dateDeclaration(incident.getDateDeclaration())
                 .statut(incident.getStatut().name())
                 .secteurId(incident.getSecteur().getId())
@@ -0,0 +1,188 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.dto.response.ClusterResponse;
+import ma.ehtp.geoinfo.event.IncidentStatutChangeEvent;
+import ma.ehtp.geoinfo.geo.BoundingBox;
+import ma.ehtp.geoinfo.geo.TileMath;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Regroupement des marqueurs d'incidents par niveau de zoom (côté serveur)
+ *
+ * Grille hiérarchique alignée sur les tuiles : au zoom z, chaque tuile est
+ * découpée en 8x8 cellules (~32 px) et les incidents d'une même cellule
+ * forment un cluster placé à leur barycentre. Un cluster ne chevauchant
+ * jamais deux tuiles, le résultat est mis en cache par tuile (z, x, y).
+ *
+ * Un changement de statut n'invalide que les tuiles contenant l'incident
+ * (une par niveau de zoom).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterService {
+
+    private static final int BITS_CELLULES_PAR_TUILE = 3; // 8x8 cellules
+    private static final int ZOOM_MAX = 20;
+    // Au-delà, chaque incident est renvoyé individuellement
+    private static final int ZOOM_SANS_CLUSTER = 18;
+    private static final int MAX_TUILES_PAR_REQUETE = 64;
+    private static final int MAX_TUILES_EN_CACHE = 20000;
+
+    private final IncidentPointIndex pointIndex;
+
+    private final Map<Long, TuileEnCache> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Incrémentée par chaque invalidation : une tuile calculée pendant une
+     * invalidation n'est pas mise en cache (elle peut précéder la mise à jour)
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Clusters des incidents publiés (VALIDE) visibles dans l'emprise
+     *
+     * @param z    Niveau de zoom de la carte
+     * @param bbox Emprise visible
+     * @return Clusters des tuiles couvrant l'emprise
+     */
+    public List<ClusterResponse> getClusters(int z, BoundingBox bbox) {
+        int zoom = Math.max(0, Math.min(z, ZOOM_MAX));
+
+        int xMin = TileMath.tuileX(bbox.getMinLon(), zoom);
+        int xMax = TileMath.tuileX(bbox.getMaxLon(), zoom);
+        int yMin = TileMath.tuileY(bbox.getMaxLat(), zoom);
+        int yMax = TileMath.tuileY(bbox.getMinLat(), zoom);
+
+        long nbTuiles = (long) (xMax - xMin + 1) * (yMax - yMin + 1);
+        if (nbTuiles > MAX_TUILES_PAR_REQUETE) {
+            throw new IllegalArgumentException(
+                    "Emprise trop grande pour le zoom " + zoom + " (" + nbTuiles + " tuiles)");
+        }
+
+        List<ClusterResponse> clusters = new ArrayList<>();
+        for (int x = xMin; x <= xMax; x++) {
+            for (int y = yMin; y <= yMax; y++) {
+                clusters.addAll(getTuile(zoom, x, y));
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * Clusters d'une tuile, depuis le cache si l'index n'a pas été rechargé
+     */
+    private List<ClusterResponse> getTuile(int z, int x, int y) {
+        long cle = TileMath.cle(z, x, y);
+        long generationDebut = generation.get();
+        long version = pointIndex.getVersion();
+
+        TuileEnCache enCache = cache.get(cle);
+        if (enCache != null && enCache.version == version) {
+            return enCache.clusters;
+        }
+
+        List<ClusterResponse> clusters = calculerTuile(z, x, y);
+        if (cache.size() >= MAX_TUILES_EN_CACHE) {
+            cache.clear();
+        }
+        TuileEnCache nouvelle = new TuileEnCache(version, clusters);
+        // Atomique vis-à-vis du remove du listener sur la même clé
+        cache.compute(cle, (k, ancienne) -> generation.get() == generationDebut ? nouvelle : ancienne);
+        return clusters;
+    }
+
+    /**
+     * Regroupe les incidents de la tuile par cellule de grille
+     */
+    private List<ClusterResponse> calculerTuile(int z, int x, int y) {
+        Map<Long, Cellule> cellules = new LinkedHashMap<>();
+        int zoomCellules = z + BITS_CELLULES_PAR_TUILE;
+        long echelle = 1L << zoomCellules;
+
+        for (IncidentPointIndex.PointIncident point : pointIndex.dansTuile(z, x, y)) {
+            long cle = z >= ZOOM_SANS_CLUSTER
+                    ? point.getId()
+                    : (long) (TileMath.mercatorX(point.getLongitude()) * echelle) * echelle
+                            + (long) (TileMath.mercatorY(point.getLatitude()) * echelle);
+            cellules.computeIfAbsent(cle, k -> new Cellule()).ajouter(point);
+        }
+
+        List<ClusterResponse> clusters = new ArrayList<>(cellules.size());
+        for (Cellule cellule : cellules.values()) {
+            clusters.add(cellule.versResponse());
+        }
+        return clusters;
+    }
+
+    /**
+     * Invalide les tuiles contenant l'incident, à chaque niveau de zoom
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(IncidentPointIndex.ORDRE_LISTENER + 10)
+    public void onStatutChange(IncidentStatutChangeEvent event) {
+        if (event.getLatitude() == null || event.getLongitude() == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        for (int z = 0; z <= ZOOM_MAX; z++) {
+            cache.remove(TileMath.cle(z,
+                    TileMath.tuileX(event.getLongitude(), z),
+                    TileMath.tuileY(event.getLatitude(), z)));
+        }
+    }
+
+    /**
+     * Clusters calculés pour une version donnée de l'index
+     */
+    private record TuileEnCache(long version, List<ClusterResponse> clusters) {
+    }
+
+    /**
+     * Accumulateur d'une cellule de grille
+     */
+    private static class Cellule {
+
+        private long nombre;
+        private double sommeLon;
+        private double sommeLat;
+        private final Map<String, Long> parStatut = new HashMap<>();
+        private IncidentPointIndex.PointIncident premier;
+
+        void ajouter(IncidentPointIndex.PointIncident point) {
+            if (premier == null) {
+                premier = point;
+            }
+            nombre++;
+            sommeLon += point.getLongitude();
+            sommeLat += point.getLatitude();
+            parStatut.merge(point.getStatut().name(), 1L, Long::sum);
+        }
+
+        ClusterResponse versResponse() {
+            ClusterResponse.ClusterResponseBuilder builder = ClusterResponse.builder()
+                    .latitude(sommeLat / nombre)
+                    .longitude(sommeLon / nombre)
+                    .nombre(nombre)
+                    .parStatut(parStatut);
+            if (nombre == 1) {
+                builder.incidentId(premier.getId())
+                        .statut(premier.getStatut().name())
+                        .secteurId(premier.getSecteurId());
+            }
+            return builder.build();
+        }
+    }
+}
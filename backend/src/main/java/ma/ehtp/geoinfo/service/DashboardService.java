@@ -0,0 +1,269 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.dto.response.DelaisTraitementResponse;
+import ma.ehtp.geoinfo.entity.Incident;
+import ma.ehtp.geoinfo.entity.Professionnel;
+import ma.ehtp.geoinfo.exception.ResourceNotFoundException;
+import ma.ehtp.geoinfo.repository.IncidentRepository;
+import ma.ehtp.geoinfo.repository.ProfessionnelRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Service des dashboards admin et professionnel
+ *
+ * Les données sont des snapshots précalculés sur un exécuteur dédié
+ * (stale-while-revalidate) :
+ * - la requête est servie depuis le dernier snapshot
+ * - un snapshot plus vieux que le TTL déclenche un recalcul en arrière-plan
+ * - les demandes simultanées d'un même snapshot partagent un seul calcul
+ *
+ * Snapshots : un global pour les admins, un par secteur pour les professionnels
+ */
+@Service
+@Slf4j
+public class DashboardService {
+
+    private static final String CLE_ADMIN = "admin";
+    private static final String PREFIXE_SECTEUR = "secteur:";
+
+    private final IncidentRepository incidentRepository;
+    private final ProfessionnelRepository professionnelRepository;
+    private final DelaisTraitementService delaisTraitementService;
+    private final RollupService rollupService;
+    private final TaskExecutor executor;
+    private final long ttlMs;
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Snapshot>> calculsEnCours = new ConcurrentHashMap<>();
+
+    public DashboardService(IncidentRepository incidentRepository,
+            ProfessionnelRepository professionnelRepository,
+            DelaisTraitementService delaisTraitementService,
+            RollupService rollupService,
+            @Qualifier("dashboardExecutor") TaskExecutor executor,
+            @Value("${dashboard.ttl-ms:30000}") long ttlMs) {
+        this.incidentRepository = incidentRepository;
+        this.professionnelRepository = professionnelRepository;
+        this.delaisTraitementService = delaisTraitementService;
+        this.rollupService = rollupService;
+        this.executor = executor;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Dashboard global (admins)
+     *
+     * @return Statistiques du dernier snapshot
+     */
+    public Map<String, Object> getDashboardAdmin() {
+        return servir(CLE_ADMIN, this::calculerDashboardAdmin);
+    }
+
+    /**
+     * Dashboard du secteur d'un professionnel
+     *
+     * @param professionnelId ID du professionnel
+     * @return Statistiques du dernier snapshot de son secteur
+     */
+    public Map<String, Object> getDashboardProfessionnel(Long professionnelId) {
+        Professionnel professionnel = professionnelRepository.findById(professionnelId)
+                .orElseThrow(() -> new ResourceNotFoundException("Professionnel", "id", professionnelId));
+
+        Long secteurId = professionnel.getSecteurAffectate();
+        String secteurNom = professionnel.getSecteur().getNom();
+
+        return servir(PREFIXE_SECTEUR + secteurId, () -> calculerDashboardSecteur(secteurId, secteurNom));
+    }
+
+    /**
+     * Sert un snapshot en appliquant la politique stale-while-revalidate
+     */
+    private Map<String, Object> servir(String cle, Supplier<Map<String, Object>> calcul) {
+        Snapshot snapshot = snapshots.get(cle);
+
+        if (snapshot == null) {
+            // Premier accès : attendre le calcul (partagé avec les autres demandes)
+            try {
+                snapshot = rafraichir(cle, calcul).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re
+                        : new RuntimeException("Calcul du dashboard impossible", e.getCause());
+            }
+        } else if (snapshot.ageMs() > ttlMs) {
+            rafraichir(cle, calcul);
+        }
+
+        Map<String, Object> reponse = new LinkedHashMap<>(snapshot.donnees());
+        reponse.put("genereLe", snapshot.genereLe());
+        reponse.put("perime", snapshot.ageMs() > ttlMs);
+        return reponse;
+    }
+
+    /**
+     * Lance le calcul d'un snapshot, ou rejoint celui déjà en cours
+     */
+    private CompletableFuture<Snapshot> rafraichir(String cle, Supplier<Map<String, Object>> calcul) {
+        CompletableFuture<Snapshot> future = new CompletableFuture<>();
+        CompletableFuture<Snapshot> existant = calculsEnCours.putIfAbsent(cle, future);
+        if (existant != null) {
+            return existant;
+        }
+
+        try {
+            executor.execute(() -> {
+                long debut = System.currentTimeMillis();
+                try {
+                    Snapshot snapshot = new Snapshot(calcul.get(), LocalDateTime.now(), System.currentTimeMillis());
+                    snapshots.put(cle, snapshot);
+                    future.complete(snapshot);
+                    log.debug("Snapshot dashboard {} calculé en {} ms", cle, System.currentTimeMillis() - debut);
+                } catch (Exception e) {
+                    log.error("Erreur lors du calcul du snapshot dashboard {}", cle, e);
+                    future.completeExceptionally(e);
+                } finally {
+                    calculsEnCours.remove(cle, future);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Exécuteur saturé : le prochain accès retentera
+            calculsEnCours.remove(cle, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Calcule le dashboard global à partir des agrégats SQL
+     */
+    private Map<String, Object> calculerDashboardAdmin() {
+        List<Object[]> lignes = incidentRepository.aggregateStatistiques(LocalDateTime.now().minusDays(30));
+
+        Map<Incident.StatutIncident, Long> parStatut = new EnumMap<>(Incident.StatutIncident.class);
+        Map<String, Long> parSecteur = new HashMap<>();
+        Map<String, Long> parProvince = new HashMap<>();
+        Map<String, Long> parType = new HashMap<>();
+        Double delaiMoyenHeures = null;
+
+        for (Object[] ligne : lignes) {
+            delaiMoyenHeures = ligne[4] != null ? ((Number) ligne[4]).doubleValue() : null;
+            String cle = (String) ligne[1];
+            long nombre = ((Number) ligne[2]).longValue();
+            if (cle == null) {
+                continue;
+            }
+            switch ((String) ligne[0]) {
+                case "STATUT" -> parStatut.put(Incident.StatutIncident.valueOf(cle), nombre);
+                case "SECTEUR" -> parSecteur.put(cle, nombre);
+                case "PROVINCE" -> parProvince.put(cle, nombre);
+                default -> parType.put(cle, nombre);
+            }
+        }
+
+        Map<String, Object> stats = statistiquesParStatut(parStatut);
+        stats.put("parSecteur", parSecteur);
+        stats.put("parProvince", parProvince);
+        stats.put("parType", parType);
+        stats.put("delaiMoyenHeures", delaiMoyenHeures != null ? Math.round(delaiMoyenHeures * 10) / 10.0 : null);
+        stats.put("delais", delaisTraitementService.getQuantiles().getTrenteJours().getGlobal());
+        stats.put("professionnelsActifs", professionnelRepository.countByActifTrue());
+        stats.put("evolution", evolution(null));
+        return stats;
+    }
+
+    /**
+     * Calcule le dashboard d'un secteur
+     */
+    private Map<String, Object> calculerDashboardSecteur(Long secteurId, String secteurNom) {
+        Map<Incident.StatutIncident, Long> parStatut = new EnumMap<>(Incident.StatutIncident.class);
+        Map<String, Long> parProvince = new HashMap<>();
+        Map<String, Long> parType = new HashMap<>();
+
+        for (Object[] ligne : incidentRepository.aggregateSecteur(secteurId)) {
+            String cle = (String) ligne[1];
+            long nombre = ((Number) ligne[2]).longValue();
+            if (cle == null) {
+                continue;
+            }
+            switch ((String) ligne[0]) {
+                case "STATUT" -> parStatut.put(Incident.StatutIncident.valueOf(cle), nombre);
+                case "PROVINCE" -> parProvince.put(cle, nombre);
+                default -> parType.put(cle, nombre);
+            }
+        }
+
+        DelaisTraitementResponse.FenetreDTO delais = delaisTraitementService.getQuantiles().getTrenteJours();
+
+        Map<String, Object> stats = statistiquesParStatut(parStatut);
+        stats.put("secteurId", secteurId);
+        stats.put("secteurNom", secteurNom);
+        stats.put("parProvince", parProvince);
+        stats.put("parType", parType);
+        stats.put("delais", delais.getParSecteur().get(secteurNom));
+        stats.put("professionnelsActifs", professionnelRepository.countBySecteurIdAndActifTrue(secteurId));
+        stats.put("evolution", evolution(secteurId));
+        return stats;
+    }
+
+    /**
+     * Compteurs communs aux deux dashboards
+     */
+    private Map<String, Object> statistiquesParStatut(Map<Incident.StatutIncident, Long> parStatut) {
+        long total = parStatut.values().stream().mapToLong(Long::longValue).sum();
+        long traite = parStatut.getOrDefault(Incident.StatutIncident.TRAITE, 0L);
+        long rejete = parStatut.getOrDefault(Incident.StatutIncident.REJETE, 0L);
+        long enAttente = parStatut.getOrDefault(Incident.StatutIncident.REDIGE, 0L);
+
+        // Taux de résolution sur les incidents acceptés (hors REDIGE et REJETE)
+        long acceptes = total - rejete - enAttente;
+        double tauxResolution = acceptes > 0 ? (double) traite / acceptes * 100 : 0;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("total", total);
+        stats.put("enAttente", enAttente);
+        stats.put("enCours", parStatut.getOrDefault(Incident.StatutIncident.PRIS_EN_COMPTE, 0L)
+                + parStatut.getOrDefault(Incident.StatutIncident.EN_COURS_DE_TRAITEMENT, 0L));
+        stats.put("traite", traite);
+        stats.put("bloque", parStatut.getOrDefault(Incident.StatutIncident.BLOQUE, 0L));
+        stats.put("tauxResolution", Math.round(tauxResolution * 100.0) / 100.0);
+
+        Map<String, Long> statuts = new LinkedHashMap<>();
+        for (Incident.StatutIncident statut : Incident.StatutIncident.values()) {
+            statuts.put(statut.name(), parStatut.getOrDefault(statut, 0L));
+        }
+        stats.put("parStatut", statuts);
+        return stats;
+    }
+
+    /**
+     * Évolution journalière sur 7 jours (tables de rollup)
+     */
+    private Object evolution(Long secteurId) {
+        LocalDateTime fin = LocalDateTime.now();
+        return rollupService.getSerieTemporelle(fin.minusDays(7), fin, "day", null, secteurId, null).getPoints();
+    }
+
+    /**
+     * Snapshot immuable d'un dashboard
+     */
+    private record Snapshot(Map<String, Object> donnees, LocalDateTime genereLe, long instantMs) {
+
+        long ageMs() {
+            return System.currentTimeMillis() - instantMs;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.dto.response.DelaisTraitementResponse;
+import ma.ehtp.geoinfo.entity.Incident;
+import ma.ehtp.geoinfo.event.IncidentStatutChangeEvent;
+import ma.ehtp.geoinfo.repository.IncidentRepository;
+import ma.ehtp.geoinfo.util.HistogrammeLogLineaire;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Suivi en continu des délais de traitement (déclaration → TRAITE)
+ *
+ * Chaque population (global, par secteur, par province) possède 30
+ * histogrammes journaliers en anneau : les fenêtres glissantes de 7 et 30
+ * jours sont obtenues en cumulant les jours concernés. Mémoire bornée
+ * (272 compteurs par jour et par population), aucun parcours de la table.
+ *
+ * Alimenté par les IncidentStatutChangeEvent vers TRAITE, reconstruit au
+ * démarrage puis chaque nuit à partir de tuples primitifs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DelaisTraitementService {
+
+    private static final int JOURS_CONSERVES = 30;
+    private static final String GLOBAL = "global";
+    private static final String PREFIXE_SECTEUR = "secteur:";
+    private static final String PREFIXE_PROVINCE = "province:";
+
+    private final IncidentRepository incidentRepository;
+
+    private volatile Map<String, FenetreGlissante> fenetres = new ConcurrentHashMap<>();
+
+    /**
+     * Construit les histogrammes une fois l'application démarrée
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        try {
+            reconstruire();
+        } catch (Exception e) {
+            log.error("Initialisation des histogrammes de délais impossible", e);
+        }
+    }
+
+    /**
+     * Reconstruit les histogrammes depuis la base (corrige les doubles comptages
+     * d'incidents repassés plusieurs fois en TRAITE)
+     */
+    @Scheduled(cron = "${delais.reconstruction-cron:0 0 3 * * *}")
+    public void reconstruire() {
+        long debut = System.currentTimeMillis();
+        Map<String, FenetreGlissante> nouvelles = new ConcurrentHashMap<>();
+
+        List<Object[]> lignes = incidentRepository.findDelaisTraitementDepuis(
+                LocalDate.now().minusDays(JOURS_CONSERVES - 1).atStartOfDay());
+        for (Object[] ligne : lignes) {
+            long minutes = ((Number) ligne[2]).longValue();
+            long jour = LocalDateTime.ofEpochSecond(((Number) ligne[3]).longValue(), 0, ZoneOffset.UTC)
+                    .toLocalDate().toEpochDay();
+            enregistrer(nouvelles, (String) ligne[0], (String) ligne[1], jour, minutes);
+        }
+
+        this.fenetres = nouvelles;
+        log.info("Histogrammes de délais reconstruits : {} incident(s) traités en {} ms",
+                lignes.size(), System.currentTimeMillis() - debut);
+    }
+
+    /**
+     * Enregistre le délai d'un incident passé en TRAITE (après commit)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatutChange(IncidentStatutChangeEvent event) {
+        if (event.getNouveauStatut() != Incident.StatutIncident.TRAITE
+                || event.getDateTraitement() == null || event.getDateDeclaration() == null) {
+            return;
+        }
+        long minutes = Duration.between(event.getDateDeclaration(), event.getDateTraitement()).toMinutes();
+        if (minutes < 0) {
+            return;
+        }
+        enregistrer(fenetres, event.getSecteurNom(), event.getProvince(),
+                event.getDateTraitement().toLocalDate().toEpochDay(), minutes);
+    }
+
+    /**
+     * Quantiles p50/p90/p99 des délais de traitement en heures
+     */
+    public DelaisTraitementResponse getQuantiles() {
+        long aujourdhui = LocalDate.now().toEpochDay();
+        return DelaisTraitementResponse.builder()
+                .septJours(construireFenetre(aujourdhui, 7))
+                .trenteJours(construireFenetre(aujourdhui, JOURS_CONSERVES))
+                .build();
+    }
+
+    private DelaisTraitementResponse.FenetreDTO construireFenetre(long aujourdhui, int nbJours) {
+        DelaisTraitementResponse.QuantilesDTO global = null;
+        Map<String, DelaisTraitementResponse.QuantilesDTO> parSecteur = new HashMap<>();
+        Map<String, DelaisTraitementResponse.QuantilesDTO> parProvince = new HashMap<>();
+
+        for (Map.Entry<String, FenetreGlissante> entree : fenetres.entrySet()) {
+            long[] cumul = entree.getValue().cumuler(aujourdhui, nbJours);
+            long nombre = HistogrammeLogLineaire.total(cumul);
+            if (nombre == 0) {
+                continue;
+            }
+            DelaisTraitementResponse.QuantilesDTO quantiles = DelaisTraitementResponse.QuantilesDTO.builder()
+                    .nombre(nombre)
+                    .p50(enHeures(HistogrammeLogLineaire.quantile(cumul, 0.50)))
+                    .p90(enHeures(HistogrammeLogLineaire.quantile(cumul, 0.90)))
+                    .p99(enHeures(HistogrammeLogLineaire.quantile(cumul, 0.99)))
+                    .build();
+
+            String cle = entree.getKey();
+            if (cle.equals(GLOBAL)) {
+                global = quantiles;
+            } else if (cle.startsWith(PREFIXE_SECTEUR)) {
+                parSecteur.put(cle.substring(PREFIXE_SECTEUR.length()), quantiles);
+            } else {
+                parProvince.put(cle.substring(PREFIXE_PROVINCE.length()), quantiles);
+            }
+        }
+
+        return DelaisTraitementResponse.FenetreDTO.builder()
+                .global(global)
+                .parSecteur(parSecteur)
+                .parProvince(parProvince)
+                .build();
+    }
+
+    private static void enregistrer(Map<String, FenetreGlissante> cible, String secteur, String province,
+            long jour, long minutes) {
+        cible.computeIfAbsent(GLOBAL, k -> new FenetreGlissante()).enregistrer(jour, minutes);
+        if (secteur != null) {
+            cible.computeIfAbsent(PREFIXE_SECTEUR + secteur, k -> new FenetreGlissante()).enregistrer(jour, minutes);
+        }
+        if (province != null) {
+            cible.computeIfAbsent(PREFIXE_PROVINCE + province, k -> new FenetreGlissante()).enregistrer(jour, minutes);
+        }
+    }
+
+    private static Double enHeures(Double minutes) {
+        return minutes != null ? Math.round(minutes / 60.0 * 10) / 10.0 : null;
+    }
+
+    /**
+     * Anneau de JOURS_CONSERVES histogrammes journaliers
+     */
+    private static class FenetreGlissante {
+
+        private final HistogrammeLogLineaire[] histogrammes = new HistogrammeLogLineaire[JOURS_CONSERVES];
+        private final long[] jours = new long[JOURS_CONSERVES];
+
+        FenetreGlissante() {
+            for (int i = 0; i < JOURS_CONSERVES; i++) {
+                histogrammes[i] = new HistogrammeLogLineaire();
+                jours[i] = Long.MIN_VALUE;
+            }
+        }
+
+        synchronized void enregistrer(long jour, long minutes) {
+            int slot = (int) Math.floorMod(jour, (long) JOURS_CONSERVES);
+            if (jours[slot] != jour) {
+                if (jours[slot] > jour) {
+                    return; // Jour déjà sorti de la fenêtre
+                }
+                histogrammes[slot].reinitialiser();
+                jours[slot] = jour;
+            }
+            histogrammes[slot].enregistrer(minutes);
+        }
+
+        synchronized long[] cumuler(long aujourdhui, int nbJours) {
+            long[] cumul = new long[HistogrammeLogLineaire.TAILLE];
+            for (int i = 0; i < JOURS_CONSERVES; i++) {
+                if (jours[i] <= aujourdhui && jours[i] > aujourdhui - nbJours) {
+                    histogrammes[i].ajouterA(cumul);
+                }
+            }
+            return cumul;
+        }
+    }
+}
@@ -1,34 +1,75 @@
 package ma.ehtp.geoinfo.service;
 
 import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.repository.IncidentRepository;
+import ma.ehtp.geoinfo.storage.PhotoStorage;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * Service de stockage de fichiers
  * Gère l'upload et le stockage des photos d'incidents
+ *
+ * Les photos sont adressées par leur contenu : le nom du fichier est
+ * l'empreinte SHA-256 suivie de l'extension du format détecté. Un même
+ * contenu déposé plusieurs fois (renvois de la file hors ligne de la PWA)
+ * n'occupe qu'un fichier, partagé par les incidents qui le référencent via
+ * photoUrl ; un fichier n'est supprimé que lorsqu'aucun incident ne le
+ * référence plus. Un nom ne désigne jamais qu'un seul contenu : les fichiers
+ * sont immuables.
+ *
+ * L'emplacement physique et les URLs dépendent du backend PhotoStorage
+ * (disque local partitionné ou bucket S3) ; seul le fichier temporaire d'un
+ * dépôt en cours est écrit localement, dans <file.upload-dir>/.tmp.
  */
 @Service
 @Slf4j
 public class FileStorageService {
 
-    private final Path fileStorageLocation;
+    private static final int TAILLE_BLOC = 64 * 1024;
+    private static final int LONGUEUR_SIGNATURE = 12;
+    private static final String SUFFIXE_TEMPORAIRE = ".part";
+    private static final String REPERTOIRE_TEMPORAIRE = ".tmp";
 
-    public FileStorageService(@Value("${file.upload-dir}") String uploadDir) {
-        this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+    /**
+     * Suffixes des variantes générées à côté d'une photo (ImageVariantesService)
+     */
+    public static final String SUFFIXE_MINIATURE = "_min.jpg";
+    public static final String SUFFIXE_WEB = "_web.jpg";
+
+    private final IncidentRepository incidentRepository;
+    private final PhotoStorage photoStorage;
+    private final Path repertoireTemporaire;
+    private final long tailleMax;
+
+    public FileStorageService(IncidentRepository incidentRepository,
+            PhotoStorage photoStorage,
+            @Value("${file.upload-dir}") String uploadDir,
+            @Value("${file.taille-max:10485760}") long tailleMax) {
+        this.incidentRepository = incidentRepository;
+        this.photoStorage = photoStorage;
+        this.repertoireTemporaire = Paths.get(uploadDir).toAbsolutePath().normalize().resolve(REPERTOIRE_TEMPORAIRE);
+        this.tailleMax = tailleMax;
 
         try {
-            Files.createDirectories(this.fileStorageLocation);
-            log.info("Répertoire de stockage créé : {}", this.fileStorageLocation);
+            Files.createDirectories(this.repertoireTemporaire);
+            log.info("Répertoire de stockage créé : {}", this.repertoireTemporaire.getParent());
         } catch (Exception ex) {
             log.error("Impossible de créer le répertoire de stockage", ex);
             throw new RuntimeException("Impossible de créer le répertoire de stockage", ex);
@@ -42,55 +83,208 @@ public class FileStorageService {
      * @return Nom du fichier stocké
      */
     public String storeFile(MultipartFile file) {
+        return stockerFlux(file).nom();
+    }
+
+    /**
+     * Stocke un fichier sans le recopier
+     *
+     * Le conteneur reçoit la part multipart directement sur disque, dans le
+     * répertoire temporaire du stockage (spring.servlet.multipart.location =
+     * <file.upload-dir>/.tmp, file-size-threshold = 0) et interrompt la
+     * réception au-delà de spring.servlet.multipart.max-file-size. Ici :
+     * - la taille reçue et la signature (octets magiques) sont vérifiées avant
+     *   tout déplacement ;
+     * - la part est renommée en fichier temporaire (Part.write : simple
+     *   renommage sur le même système de fichiers), puis relue une seule fois
+     *   pour le SHA-256 ;
+     * - le fichier est confié au backend de stockage sous <sha256>.<ext> (pour
+     *   le disque local, un second renommage) ; si ce contenu est déjà stocké,
+     *   le fichier temporaire est abandonné et le fichier existant réutilisé.
+     *
+     * @param file Fichier à stocker
+     * @return Nom, taille et empreinte SHA-256 du fichier stocké
+     */
+    public FichierStocke stockerFlux(MultipartFile file) {
         // Normaliser le nom du fichier
-        String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
+        String originalFilename = file.getOriginalFilename() != null
+                ? StringUtils.cleanPath(file.getOriginalFilename())
+                : "";
+
+        log.info("📁 DÉBUT stockage fichier: {} ({} bytes)", originalFilename, file.getSize());
 
-        log.info("📁 DÉBUT stockage fichier: {}", originalFilename);
-        log.info("📊 Taille du fichier: {} bytes", file.getSize());
+        if (file.getSize() > tailleMax) {
+            throw new IllegalArgumentException(messageTailleMax());
+        }
 
+        Path temporaire = nouveauFichierTemporaire();
         try {
-            // Vérifier si le fichier contient des caractères invalides
-            if (originalFilename.contains("..")) {
-                throw new RuntimeException(
-                        "Le nom du fichier contient une séquence de chemin invalide : " + originalFilename);
+            // Signature vérifiée avant tout déplacement de la part
+            String extension;
+            try (InputStream in = file.getInputStream()) {
+                extension = extensionImage(in.readNBytes(LONGUEUR_SIGNATURE));
             }
-
-            // Générer un nom de fichier unique
-            String fileExtension = "";
-            if (originalFilename.contains(".")) {
-                fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+            if (extension == null) {
+                throw new IllegalArgumentException("Contenu invalide : le fichier n'est pas une image JPEG, PNG ou WEBP");
             }
-            String newFilename = UUID.randomUUID().toString() + fileExtension;
 
-            // Copier le fichier vers le répertoire de stockage
-            Path targetLocation = this.fileStorageLocation.resolve(newFilename);
-            log.info("💾 Stockage vers: {}", targetLocation.toAbsolutePath());
+            // transferTo(File) délègue à Part.write (renommage) ; transferTo(Path) recopierait
+            file.transferTo(temporaire.toFile());
+            long taille = Files.size(temporaire);
+            String sha256 = empreinte(temporaire);
+            String newFilename = sha256 + extension;
 
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            // Même nom = même contenu : le fichier existant fait foi
+            boolean nouveau = photoStorage.enregistrer(newFilename, temporaire);
+            FichierStocke stocke = new FichierStocke(newFilename, taille, sha256, nouveau);
 
-            log.info("✅ Fichier stocké avec succès: {} -> {}", originalFilename, newFilename);
-            log.info("📍 Chemin complet: {}", targetLocation.toAbsolutePath());
+            if (stocke.nouveau()) {
+                log.info("✅ Fichier stocké avec succès: {} -> {} ({} bytes)",
+                        originalFilename, stocke.nom(), stocke.taille());
+            } else {
+                log.info("♻️ Contenu déjà stocké, fichier réutilisé: {} -> {}", originalFilename, stocke.nom());
+            }
 
-            return newFilename;
+            return stocke;
         } catch (IOException ex) {
             log.error("❌ Impossible de stocker le fichier : {}", originalFilename, ex);
             throw new RuntimeException("Impossible de stocker le fichier : " + originalFilename, ex);
+        } finally {
+            try {
+                Files.deleteIfExists(temporaire);
+            } catch (IOException ex) {
+                log.warn("Fichier temporaire non supprimé : {}", temporaire);
+            }
+        }
+    }
+
+    /**
+     * SHA-256 d'un fichier, lu par blocs via un FileChannel
+     */
+    private static String empreinte(Path fichier) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer tampon = ByteBuffer.allocate(TAILLE_BLOC);
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            while (canal.read(tampon.clear()) != -1) {
+                digest.update(tampon.flip());
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Extension correspondant aux octets magiques JPEG, PNG ou WEBP (RIFF....WEBP)
+     *
+     * @return ".jpg", ".png", ".webp" ou null si ce n'est pas une image acceptée
+     */
+    static String extensionImage(byte[] s) {
+        if (s.length >= 3 && (s[0] & 0xFF) == 0xFF && (s[1] & 0xFF) == 0xD8 && (s[2] & 0xFF) == 0xFF) {
+            return ".jpg";
+        }
+        if (s.length >= 8 && (s[0] & 0xFF) == 0x89 && s[1] == 'P' && s[2] == 'N' && s[3] == 'G'
+                && s[4] == 0x0D && s[5] == 0x0A && s[6] == 0x1A && s[7] == 0x0A) {
+            return ".png";
+        }
+        if (s.length >= 12 && s[0] == 'R' && s[1] == 'I' && s[2] == 'F' && s[3] == 'F'
+                && s[8] == 'W' && s[9] == 'E' && s[10] == 'B' && s[11] == 'P') {
+            return ".webp";
+        }
+        return null;
+    }
+
+    private String messageTailleMax() {
+        return "La taille de l'image ne doit pas dépasser " + tailleMax / (1024 * 1024) + "MB";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
         }
     }
 
     /**
-     * Supprime un fichier
+     * Taille maximale d'une image stockée (octets)
+     */
+    public long getTailleMax() {
+        return tailleMax;
+    }
+
+    /**
+     * Supprime un fichier et ses variantes s'il n'est plus référencé
+     * Le nombre de références est le nombre d'incidents dont photoUrl désigne
+     * le fichier : à appeler après avoir détaché la photo de l'incident
      * 
      * @param filename Nom du fichier à supprimer
+     * @return true si le fichier a été supprimé
      */
-    public void deleteFile(String filename) {
+    public boolean deleteFile(String filename) {
+        long references = compterReferences(filename);
+        if (references > 0) {
+            log.debug("Fichier {} conservé : encore référencé par {} incident(s)", filename, references);
+            return false;
+        }
         try {
-            Path filePath = this.fileStorageLocation.resolve(filename).normalize();
-            Files.deleteIfExists(filePath);
+            photoStorage.supprimer(filename);
+            for (String variante : getVariantes(filename)) {
+                photoStorage.supprimer(variante);
+            }
             log.info("Fichier supprimé : {}", filename);
+            return true;
         } catch (IOException ex) {
             log.error("Impossible de supprimer le fichier : {}", filename, ex);
+            return false;
+        }
+    }
+
+    /**
+     * Nombre d'incidents référençant un fichier via photoUrl, quelle que soit
+     * la base de l'URL enregistrée (même règle que le marquage du nettoyage)
+     *
+     * @param filename Nom du fichier
+     * @return Nombre de références
+     */
+    public long compterReferences(String filename) {
+        return incidentRepository.countByNomPhoto(filename);
+    }
+
+    /**
+     * Nombre d'incidents référençant une variante (miniature, web), directement
+     * ou via leur photo originale
+     *
+     * @param variante Nom de la variante (<base>_min.jpg ou <base>_web.jpg)
+     * @return Nombre de références
+     */
+    public long compterReferencesVariante(String variante) {
+        String base = variante;
+        for (String suffixe : List.of(SUFFIXE_MINIATURE, SUFFIXE_WEB)) {
+            if (variante.endsWith(suffixe)) {
+                base = variante.substring(0, variante.length() - suffixe.length());
+            }
         }
+        return incidentRepository.countByNomVariante(variante, base);
+    }
+
+    /**
+     * Noms des variantes (miniature, web) d'une photo
+     *
+     * @param filename Nom du fichier original
+     * @return Noms des variantes, existantes ou non
+     */
+    public static List<String> getVariantes(String filename) {
+        String base = filename.contains(".") ? filename.substring(0, filename.lastIndexOf('.')) : filename;
+        return List.of(base + SUFFIXE_MINIATURE, base + SUFFIXE_WEB);
+    }
+
+    /**
+     * Nouveau fichier temporaire local (dépôt en cours, variante à publier)
+     * À confier à PhotoStorage.enregistrer ou à supprimer par l'appelant
+     *
+     * @return Chemin d'un fichier qui n'existe pas encore
+     */
+    public Path nouveauFichierTemporaire() {
+        return this.repertoireTemporaire.resolve(UUID.randomUUID() + SUFFIXE_TEMPORAIRE);
     }
 
     /**
@@ -103,8 +297,8 @@ public class FileStorageService {
         if (filename == null || filename.isEmpty()) {
             return null;
         }
-        // URL complète avec le port backend (8085)
-        return "http://localhost:8085/uploads/" + filename;
+        // URL publique propre au backend de stockage (photos.url-base, photos.s3.url-base)
+        return photoStorage.getUrl(filename);
     }
 
     /**
@@ -139,4 +333,15 @@ public class FileStorageService {
     public boolean isValidSize(MultipartFile file, long maxSizeInBytes) {
         return file != null && file.getSize() <= maxSizeInBytes;
     }
+
+    /**
+     * Résultat d'un stockage en flux
+     *
+     * @param nom     Nom du fichier dans le répertoire de stockage (<sha256>.<ext>)
+     * @param taille  Taille du contenu (octets)
+     * @param sha256  Empreinte SHA-256 du contenu (hexadécimal)
+     * @param nouveau false si ce contenu était déjà stocké (aucune écriture conservée)
+     */
+    public record FichierStocke(String nom, long taille, String sha256, boolean nouveau) {
+    }
 }
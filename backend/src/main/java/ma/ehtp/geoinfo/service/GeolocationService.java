@@ -8,13 +8,14 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.PrecisionModel;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
 
 /**
  * Service de géolocalisation
- * Utilise PostGIS pour les calculs spatiaux
+ * Résolution des provinces en mémoire (ProvinceResolver), PostGIS en secours
  */
 @Service
 @RequiredArgsConstructor
@@ -22,6 +23,16 @@ import java.util.Optional;
 public class GeolocationService {
 
     private final ProvinceRepository provinceRepository;
+    private final ProvinceResolver provinceResolver;
+
+    /**
+     * memoire : index JTS en mémoire, PostGIS seulement s'il n'est pas chargé
+     * verification : PostGIS fait foi, les divergences de l'index sont journalisées
+     * postgis : requête ST_Contains uniquement
+     */
+    @Value("${geolocation.mode:memoire}")
+    private String mode;
+
     private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
 
     /**
@@ -56,7 +67,8 @@ public class GeolocationService {
 
     /**
      * Trouve la province contenant un point donné
-     * Utilise PRIORITAIREMENT l'intersection spatiale PostGIS (ST_Contains)
+     * Utilise PRIORITAIREMENT l'index des provinces en mémoire (STRtree JTS)
+     * PostGIS (ST_Contains) si l'index n'est pas chargé ou en mode verification/postgis
      * Fallback sur approximation géographique si géométries absentes
      * 
      * @param latitude  Latitude
@@ -66,6 +78,40 @@ public class GeolocationService {
     public String findProvinceByCoordinates(Double latitude, Double longitude) {
         log.info("🗺️ Recherche de province pour coordonnées: lat={}, lon={}", latitude, longitude);
 
+        if (latitude == null || longitude == null) {
+            throw new IllegalArgumentException("Latitude et longitude sont obligatoires");
+        }
+
+        if ("memoire".equals(mode) && provinceResolver.isDisponible()) {
+            Optional<String> province = provinceResolver.resoudre(latitude, longitude);
+            if (province.isPresent()) {
+                log.info("✅ Province trouvée par INDEX EN MÉMOIRE: {}", province.get());
+                return province.get();
+            }
+            log.warn("⚠️ Point ({}, {}) hors de toutes les provinces chargées", latitude, longitude);
+            return determineProvinceByApproximation(latitude, longitude);
+        }
+
+        String provincePostgis = findProvinceByPostgis(latitude, longitude);
+        if ("verification".equals(mode) && provinceResolver.isDisponible()) {
+            String provinceMemoire = provinceResolver.resoudre(latitude, longitude)
+                    .orElseGet(() -> determineProvinceByApproximation(latitude, longitude));
+            if (!provinceMemoire.equals(provincePostgis)) {
+                log.warn("Divergence de résolution pour ({}, {}) : PostGIS={}, mémoire={}",
+                        latitude, longitude, provincePostgis, provinceMemoire);
+            }
+        }
+        return provincePostgis;
+    }
+
+    /**
+     * Trouve la province contenant un point par intersection spatiale PostGIS
+     * 
+     * @param latitude  Latitude
+     * @param longitude Longitude
+     * @return Nom de la province (approximation si aucune intersection)
+     */
+    private String findProvinceByPostgis(Double latitude, Double longitude) {
         try {
             // Créer le point PostGIS
             Point point = createPoint(latitude, longitude);
@@ -77,7 +123,7 @@ public class GeolocationService {
             if (province.isPresent()) {
                 String provinceName = province.get().getNom();
                 log.info("✅ Province trouvée par INTERSECTION SPATIALE PostGIS: {}", provinceName);
-                log.info("🎯 Méthode utilisée: ST_Contains avec géométries MultiPolygon");
+                log.info("🎯 Méthode utilisée: ST_Intersects sur province_parts (repli sur la géométrie complète si non découpée)");
                 return provinceName;
             } else {
                 // MÉTHODE 2 : Fallback approximation géographique
@@ -0,0 +1,197 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.dto.response.HeatmapResponse;
+import ma.ehtp.geoinfo.event.IncidentStatutChangeEvent;
+import ma.ehtp.geoinfo.geo.BoundingBox;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Heatmap de densité des incidents de la carte publique (VALIDE)
+ *
+ * Les incidents sont regroupés en SQL sur une grille régulière de pas cellSize
+ * degrés (index GiST pour l'emprise). L'emprise demandée est alignée sur la
+ * grille, ce qui rend les paramètres réutilisables d'une requête à l'autre :
+ * le résultat est mis en cache par jeu de paramètres.
+ *
+ * Une entrée n'est invalidée que si un incident apparaît sur la carte ou la
+ * quitte dans l'une de ses cellules et correspond à ses filtres.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HeatmapService {
+
+    private static final double TAILLE_CELLULE_MIN = 0.0005; // ~50 m
+    private static final long MAX_CELLULES = 1_000_000;
+    private static final int MAX_ENTREES_EN_CACHE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Parametres, HeatmapResponse> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Incrémentée par chaque invalidation : une heatmap calculée pendant une
+     * invalidation n'est pas mise en cache
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Calcule (ou lit en cache) la heatmap d'une emprise
+     *
+     * @param bbox         Emprise (alignée sur la grille)
+     * @param cellSize     Pas de la grille en degrés
+     * @param from         Date de déclaration minimale incluse (optionnel)
+     * @param to           Date de déclaration maximale exclue (optionnel)
+     * @param secteurId    Secteur (optionnel)
+     * @param typeIncident Type (optionnel)
+     * @return Cellules non vides
+     */
+    @Transactional(readOnly = true)
+    public HeatmapResponse getHeatmap(BoundingBox bbox, double cellSize, LocalDateTime from, LocalDateTime to,
+            Long secteurId, String typeIncident) {
+        if (!(cellSize >= TAILLE_CELLULE_MIN) || cellSize > 10) {
+            throw new IllegalArgumentException(
+                    "cellSize invalide : " + cellSize + " (entre " + TAILLE_CELLULE_MIN + " et 10 degrés)");
+        }
+
+        Parametres parametres = new Parametres(
+                (int) Math.floor(bbox.getMinLon() / cellSize), (int) Math.floor(bbox.getMinLat() / cellSize),
+                (int) Math.floor(bbox.getMaxLon() / cellSize), (int) Math.floor(bbox.getMaxLat() / cellSize),
+                cellSize, from, to, secteurId, typeIncident);
+
+        long nbCellules = (long) (parametres.cxMax - parametres.cxMin + 1) * (parametres.cyMax - parametres.cyMin + 1);
+        if (nbCellules > MAX_CELLULES) {
+            throw new IllegalArgumentException(
+                    "Grille trop fine pour l'emprise (" + nbCellules + " cellules), augmenter cellSize");
+        }
+
+        HeatmapResponse enCache = cache.get(parametres);
+        if (enCache != null) {
+            return enCache;
+        }
+
+        long generationDebut = generation.get();
+        HeatmapResponse heatmap = calculer(parametres);
+        if (cache.size() >= MAX_ENTREES_EN_CACHE) {
+            cache.clear();
+        }
+        cache.compute(parametres, (k, ancienne) -> generation.get() == generationDebut ? heatmap : ancienne);
+        return heatmap;
+    }
+
+    private HeatmapResponse calculer(Parametres p) {
+        long debut = System.currentTimeMillis();
+
+        StringBuilder sql = new StringBuilder("""
+                SELECT FLOOR(ST_X(i.location) / ?)::int AS cx,
+                       FLOOR(ST_Y(i.location) / ?)::int AS cy,
+                       COUNT(*) AS nombre
+                FROM incidents i
+                WHERE i.statut = 'VALIDE'
+                  AND i.location && ST_MakeEnvelope(?, ?, ?, ?, 4326)
+                """);
+        List<Object> params = new ArrayList<>(List.of(
+                p.cellSize, p.cellSize,
+                p.cxMin * p.cellSize, p.cyMin * p.cellSize,
+                (p.cxMax + 1) * p.cellSize, (p.cyMax + 1) * p.cellSize));
+        if (p.from != null) {
+            sql.append(" AND i.date_declaration >= ?");
+            params.add(Timestamp.valueOf(p.from));
+        }
+        if (p.to != null) {
+            sql.append(" AND i.date_declaration < ?");
+            params.add(Timestamp.valueOf(p.to));
+        }
+        if (p.secteurId != null) {
+            sql.append(" AND i.secteur_id = ?");
+            params.add(p.secteurId);
+        }
+        if (p.typeIncident != null) {
+            sql.append(" AND i.type_incident = ?");
+            params.add(p.typeIncident);
+        }
+        sql.append(" GROUP BY cx, cy");
+
+        List<int[]> lignes = new ArrayList<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            int cx = rs.getInt("cx");
+            int cy = rs.getInt("cy");
+            // Les points sur le bord max de l'enveloppe appartiennent à la cellule suivante
+            if (cx <= p.cxMax && cy <= p.cyMax) {
+                lignes.add(new int[] { cx, cy, rs.getInt("nombre") });
+            }
+        }, params.toArray());
+
+        int[] cellules = new int[lignes.size() * 3];
+        long total = 0;
+        long max = 0;
+        for (int k = 0; k < lignes.size(); k++) {
+            int[] ligne = lignes.get(k);
+            System.arraycopy(ligne, 0, cellules, k * 3, 3);
+            total += ligne[2];
+            max = Math.max(max, ligne[2]);
+        }
+
+        log.debug("Heatmap calculée : {} cellule(s), {} incident(s) en {} ms",
+                lignes.size(), total, System.currentTimeMillis() - debut);
+
+        return HeatmapResponse.builder()
+                .cellSize(p.cellSize)
+                .cellules(cellules)
+                .total(total)
+                .max(max)
+                .genereLe(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Invalide les heatmaps dont une cellule contient l'incident
+     * (seulement si l'incident apparaît sur la carte ou la quitte)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(IncidentPointIndex.ORDRE_LISTENER + 10)
+    public void onStatutChange(IncidentStatutChangeEvent event) {
+        if (!event.isVisibiliteCarteModifiee() || event.getLatitude() == null || event.getLongitude() == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        cache.keySet().removeIf(p -> p.concerne(event));
+    }
+
+    /**
+     * Jeu de paramètres d'une heatmap (clé de cache), emprise exprimée en cellules
+     */
+    private record Parametres(int cxMin, int cyMin, int cxMax, int cyMax, double cellSize,
+            LocalDateTime from, LocalDateTime to, Long secteurId, String typeIncident) {
+
+        boolean concerne(IncidentStatutChangeEvent event) {
+            int cx = (int) Math.floor(event.getLongitude() / cellSize);
+            int cy = (int) Math.floor(event.getLatitude() / cellSize);
+            if (cx < cxMin || cx > cxMax || cy < cyMin || cy > cyMax) {
+                return false;
+            }
+            LocalDateTime date = event.getDateDeclaration();
+            if (date != null && ((from != null && date.isBefore(from)) || (to != null && !date.isBefore(to)))) {
+                return false;
+            }
+            if (secteurId != null && !secteurId.equals(event.getSecteurId())) {
+                return false;
+            }
+            return typeIncident == null || typeIncident.equals(event.getTypeIncident());
+        }
+    }
+}
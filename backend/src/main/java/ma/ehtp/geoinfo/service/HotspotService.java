@@ -0,0 +1,169 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.dto.response.HotspotResponse;
+import ma.ehtp.geoinfo.geo.HexGrid;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analyse des points chauds par cellules hexagonales (HexGrid)
+ *
+ * Chaque incident porte l'identifiant de sa cellule aux résolutions 5, 7 et 9
+ * (colonnes indexées hex_r5, hex_r7, hex_r9, renseignées à la déclaration) :
+ * les agrégations sont de simples GROUP BY sur des entiers, sans prédicat spatial.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HotspotService {
+
+    // Résolution → colonne de l'incident
+    private static final Map<Integer, String> COLONNES = Map.of(
+            5, "hex_r5",
+            7, "hex_r7",
+            9, "hex_r9");
+
+    private static final int TAILLE_LOT = 1000;
+    private static final int MAX_CELLULES = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Renseigne les cellules des incidents déclarés avant leur introduction
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        try {
+            int total = 0;
+            int lot;
+            do {
+                lot = completerLot();
+                total += lot;
+            } while (lot == TAILLE_LOT);
+            if (total > 0) {
+                log.info("Cellules hexagonales renseignées pour {} incident(s) existant(s)", total);
+            }
+        } catch (Exception e) {
+            log.error("Calcul des cellules hexagonales des incidents existants impossible", e);
+        }
+    }
+
+    private int completerLot() {
+        List<Object[]> lignes = jdbcTemplate.query("""
+                SELECT id, latitude, longitude FROM incidents
+                WHERE hex_r5 IS NULL OR hex_r7 IS NULL OR hex_r9 IS NULL
+                ORDER BY id
+                LIMIT ?
+                """, (rs, i) -> new Object[] { rs.getLong(1), rs.getDouble(2), rs.getDouble(3) }, TAILLE_LOT);
+
+        List<Object[]> params = new ArrayList<>(lignes.size());
+        for (Object[] ligne : lignes) {
+            double latitude = (Double) ligne[1];
+            double longitude = (Double) ligne[2];
+            params.add(new Object[] {
+                    HexGrid.cellule(latitude, longitude, 5),
+                    HexGrid.cellule(latitude, longitude, 7),
+                    HexGrid.cellule(latitude, longitude, 9),
+                    ligne[0] });
+        }
+        jdbcTemplate.batchUpdate("UPDATE incidents SET hex_r5 = ?, hex_r7 = ?, hex_r9 = ? WHERE id = ?", params);
+        return lignes.size();
+    }
+
+    /**
+     * Cellules les plus denses en incidents publics (hors REDIGE et BLOQUE)
+     *
+     * @param resolution   Résolution 5, 7 ou 9
+     * @param parent       Cellule de résolution inférieure à explorer (optionnel) : ses
+     *                     enfants (HexGrid.enfants) sont comptés en entier, y compris
+     *                     les incidents de leurs bords situés dans une cellule voisine
+     *                     du parent
+     * @param from         Date de déclaration minimale incluse (optionnel)
+     * @param to           Date de déclaration maximale exclue (optionnel)
+     * @param secteurId    Secteur (optionnel)
+     * @param typeIncident Type (optionnel)
+     * @param limit        Nombre maximum de cellules
+     * @return Cellules triées par nombre décroissant
+     */
+    @Transactional(readOnly = true)
+    public HotspotResponse getHotspots(int resolution, Long parent, LocalDateTime from, LocalDateTime to,
+            Long secteurId, String typeIncident, int limit) {
+        String colonne = colonne(resolution);
+
+        StringBuilder sql = new StringBuilder("SELECT i." + colonne + " AS cellule, COUNT(*) AS nombre"
+                + " FROM incidents i"
+                + " WHERE i.statut NOT IN ('REDIGE', 'BLOQUE')"
+                + " AND i." + colonne + " IS NOT NULL");
+        List<Object> params = new ArrayList<>();
+        if (parent != null) {
+            if (!HexGrid.estValide(parent)) {
+                throw new IllegalArgumentException("Cellule parente invalide : " + parent);
+            }
+            int resolutionParent = HexGrid.resolution(parent);
+            if (resolutionParent >= resolution) {
+                throw new IllegalArgumentException("La cellule parente doit être de résolution inférieure à " + resolution);
+            }
+            // Parent à une résolution indexée (5 ou 7) : au plus 7^4 enfants énumérés
+            colonne(resolutionParent);
+            // Appartenance par centre des cellules (comme HexGrid.parent), et non par
+            // point : le parent de chaque cellule renvoyée est bien celui demandé
+            sql.append(" AND i.").append(colonne).append(" = ANY(?)");
+            params.add(HexGrid.enfants(parent, resolution).toArray(new Long[0]));
+        }
+        if (from != null) {
+            sql.append(" AND i.date_declaration >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND i.date_declaration < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        if (secteurId != null) {
+            sql.append(" AND i.secteur_id = ?");
+            params.add(secteurId);
+        }
+        if (typeIncident != null) {
+            sql.append(" AND i.type_incident = ?");
+            params.add(typeIncident);
+        }
+        sql.append(" GROUP BY i.").append(colonne).append(" ORDER BY nombre DESC LIMIT ?");
+        params.add(Math.max(1, Math.min(limit, MAX_CELLULES)));
+
+        List<HotspotResponse.CelluleDTO> cellules = jdbcTemplate.query(sql.toString(), (rs, i) -> {
+            long cellule = rs.getLong("cellule");
+            double[] centre = HexGrid.centre(cellule);
+            return HotspotResponse.CelluleDTO.builder()
+                    .cellule(cellule)
+                    .latitude(centre[0])
+                    .longitude(centre[1])
+                    .nombre(rs.getLong("nombre"))
+                    .contour(HexGrid.contour(cellule))
+                    .build();
+        }, params.toArray());
+
+        return HotspotResponse.builder()
+                .resolution(resolution)
+                .areteMetres(Math.round(HexGrid.arete(resolution) * 10) / 10.0)
+                .cellules(cellules)
+                .build();
+    }
+
+    private static String colonne(int resolution) {
+        String colonne = COLONNES.get(resolution);
+        if (colonne == null) {
+            throw new IllegalArgumentException("Résolution non indexée : " + resolution + " (5, 7 ou 9)");
+        }
+        return colonne;
+    }
+}
@@ -0,0 +1,330 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.event.PhotoStockeeEvent;
+import ma.ehtp.geoinfo.storage.PhotoStorage;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Génération des variantes d'images des incidents
+ *
+ * Après chaque déclaration avec photo (PhotoStockeeEvent, après commit), une
+ * tâche de l'exécuteur borné "imageExecutor" publie dans le même stockage :
+ * - une miniature (<nom>_min.jpg) pour les listes et la carte ;
+ * - une variante web (<nom>_web.jpg), côté max 1280 px, pour les fiches.
+ * Les URLs sont ensuite enregistrées sur l'incident ; tant qu'elles sont
+ * nulles, les clients affichent l'original.
+ *
+ * L'original est décodé une seule fois, sous-échantillonné à la lecture pour
+ * ne pas allouer l'image pleine résolution d'un capteur de téléphone, puis
+ * redressé selon son orientation EXIF : les variantes JPEG ne conservant pas
+ * les métadonnées, une photo prise en portrait s'afficherait couchée.
+ */
+@Service
+@Slf4j
+public class ImageVariantesService {
+
+    // Marqueurs JPEG et tag EXIF de l'orientation
+    private static final int MARQUEUR_SOI = 0xFFD8;
+    private static final int MARQUEUR_APP1 = 0xFFE1;
+    private static final int MARQUEUR_SOS = 0xFFDA;
+    private static final int MARQUEUR_EOI = 0xFFD9;
+    private static final int TAG_ORIENTATION = 0x0112;
+
+    private final FileStorageService fileStorageService;
+    private final PhotoStorage photoStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadPoolTaskExecutor executor;
+    private final int tailleMiniature;
+    private final int tailleWeb;
+    private final float qualite;
+
+    // Métriques
+    private final LongAdder traitees = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+    private final LongAdder refusees = new LongAdder();
+    private final LongAdder dureeTotaleMs = new LongAdder();
+    private final AtomicLong dureeMaxMs = new AtomicLong();
+
+    public ImageVariantesService(FileStorageService fileStorageService,
+            PhotoStorage photoStorage,
+            JdbcTemplate jdbcTemplate,
+            @Qualifier("imageExecutor") ThreadPoolTaskExecutor executor,
+            @Value("${images.miniature.taille:320}") int tailleMiniature,
+            @Value("${images.web.taille:1280}") int tailleWeb,
+            @Value("${images.qualite-jpeg:0.8}") float qualite) {
+        this.fileStorageService = fileStorageService;
+        this.photoStorage = photoStorage;
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = executor;
+        this.tailleMiniature = tailleMiniature;
+        this.tailleWeb = tailleWeb;
+        this.qualite = qualite;
+    }
+
+    /**
+     * Planifie la génération des variantes une fois l'incident validé en base
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPhotoStockee(PhotoStockeeEvent event) {
+        try {
+            executor.execute(() -> traiter(event.getIncidentId(), event.getNomFichier()));
+        } catch (TaskRejectedException e) {
+            refusees.increment();
+            log.warn("File de génération d'images pleine : incident {} servi avec la photo originale",
+                    event.getIncidentId());
+        }
+    }
+
+    private void traiter(Long incidentId, String nomFichier) {
+        long debut = System.currentTimeMillis();
+        try {
+            List<String> variantes = FileStorageService.getVariantes(nomFichier);
+            String nomMiniature = variantes.get(0);
+            String nomWeb = variantes.get(1);
+
+            // Photo adressée par contenu : variantes déjà produites pour un autre incident
+            if (!photoStorage.existe(nomMiniature) || !photoStorage.existe(nomWeb)) {
+                BufferedImage image;
+                try (InputStream original = photoStorage.ouvrir(nomFichier)) {
+                    image = lire(original, tailleWeb);
+                }
+                if (image == null) {
+                    log.info("Variantes non générées pour {} : format non décodable", nomFichier);
+                    return;
+                }
+                publier(redimensionner(image, tailleWeb), nomWeb);
+                publier(redimensionner(image, tailleMiniature), nomMiniature);
+            }
+
+            jdbcTemplate.update("UPDATE incidents SET photo_miniature_url = ?, photo_web_url = ? WHERE id = ?",
+                    fileStorageService.getFileUrl(nomMiniature), fileStorageService.getFileUrl(nomWeb), incidentId);
+
+            long duree = System.currentTimeMillis() - debut;
+            traitees.increment();
+            dureeTotaleMs.add(duree);
+            dureeMaxMs.accumulateAndGet(duree, Math::max);
+            log.debug("Variantes générées pour l'incident {} en {} ms", incidentId, duree);
+        } catch (Exception e) {
+            echecs.increment();
+            log.error("Génération des variantes impossible pour l'incident {} ({})", incidentId, nomFichier, e);
+        }
+    }
+
+    /**
+     * Décode l'image en sous-échantillonnant à la lecture : le résultat garde
+     * au moins tailleCible pixels sur son plus grand côté. L'orientation EXIF
+     * d'un JPEG est appliquée au résultat.
+     *
+     * @return Image décodée, ou null si aucun lecteur ImageIO ne la reconnaît (ex: WEBP)
+     */
+    private static BufferedImage lire(InputStream contenu, int tailleCible) throws IOException {
+        try (ImageInputStream entree = ImageIO.createImageInputStream(contenu)) {
+            Iterator<ImageReader> lecteurs = ImageIO.getImageReaders(entree);
+            if (!lecteurs.hasNext()) {
+                return null;
+            }
+            ImageReader lecteur = lecteurs.next();
+            int orientation = orientationExif(entree);
+            try {
+                lecteur.setInput(entree, true, true);
+                int cote = Math.max(lecteur.getWidth(0), lecteur.getHeight(0));
+                ImageReadParam param = lecteur.getDefaultReadParam();
+                int pas = Math.max(1, cote / tailleCible);
+                param.setSourceSubsampling(pas, pas, 0, 0);
+                return orienter(lecteur.read(0, param), orientation);
+            } finally {
+                lecteur.dispose();
+            }
+        }
+    }
+
+    /**
+     * Orientation EXIF (tag 0x0112 de l'IFD0) d'un JPEG, lue en parcourant ses
+     * marqueurs jusqu'au début des données (SOS). Le flux est replacé au début.
+     *
+     * @return Valeur 1 à 8, 1 (aucune transformation) si absente ou illisible
+     */
+    private static int orientationExif(ImageInputStream entree) throws IOException {
+        entree.mark();
+        try {
+            if (entree.readUnsignedShort() != MARQUEUR_SOI) {
+                return 1;
+            }
+            while (true) {
+                int marqueur = entree.readUnsignedShort();
+                if ((marqueur & 0xFF00) != 0xFF00 || marqueur == MARQUEUR_SOS || marqueur == MARQUEUR_EOI) {
+                    return 1;
+                }
+                int longueur = entree.readUnsignedShort() - 2;
+                if (marqueur == MARQUEUR_APP1) {
+                    byte[] app1 = new byte[longueur];
+                    entree.readFully(app1);
+                    int orientation = orientationApp1(app1);
+                    if (orientation != 0) {
+                        return orientation;
+                    }
+                } else {
+                    entree.skipBytes(longueur);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Orientation EXIF illisible, image laissée telle quelle", e);
+            return 1;
+        } finally {
+            entree.reset();
+        }
+    }
+
+    /**
+     * Lit l'orientation dans un segment APP1 "Exif\0\0" (en-tête TIFF, IFD0)
+     *
+     * @return Valeur 1 à 8, ou 0 si le segment n'en contient pas
+     */
+    private static int orientationApp1(byte[] app1) {
+        if (app1.length < 14 || app1[0] != 'E' || app1[1] != 'x' || app1[2] != 'i' || app1[3] != 'f'
+                || app1[4] != 0 || app1[5] != 0) {
+            return 0;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(app1, 6, app1.length - 6).slice();
+        if (tiff.get(0) == 'I' && tiff.get(1) == 'I') {
+            tiff.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (tiff.get(0) != 'M' || tiff.get(1) != 'M') {
+            return 0;
+        }
+        int ifd0 = tiff.getInt(4);
+        int entrees = tiff.getShort(ifd0) & 0xFFFF;
+        for (int k = 0; k < entrees; k++) {
+            int entree = ifd0 + 2 + k * 12;
+            if ((tiff.getShort(entree) & 0xFFFF) == TAG_ORIENTATION) {
+                int orientation = tiff.getShort(entree + 8) & 0xFFFF;
+                return orientation >= 1 && orientation <= 8 ? orientation : 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Applique une orientation EXIF (miroirs et rotations par quart de tour)
+     */
+    private static BufferedImage orienter(BufferedImage source, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return source;
+        }
+        int l = source.getWidth();
+        int h = source.getHeight();
+        // (m00, m10, m01, m11, m02, m12) : (x, y) -> (m00.x + m01.y + m02, m10.x + m11.y + m12)
+        AffineTransform transformation = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, l, 0);  // miroir horizontal
+            case 3 -> new AffineTransform(-1, 0, 0, -1, l, h); // 180°
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);  // miroir vertical
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);   // transposition
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);  // 90° horaire
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, l); // transversale
+            default -> new AffineTransform(0, -1, 1, 0, 0, l); // 90° antihoraire
+        };
+        boolean permute = orientation >= 5;
+        int type = source.getType() != BufferedImage.TYPE_CUSTOM ? source.getType() : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage cible = new BufferedImage(permute ? h : l, permute ? l : h, type);
+        Graphics2D g = cible.createGraphics();
+        try {
+            g.drawImage(source, transformation, null);
+        } finally {
+            g.dispose();
+        }
+        return cible;
+    }
+
+    /**
+     * Réduit l'image pour que son plus grand côté ne dépasse pas tailleMax
+     * (jamais d'agrandissement), sur fond blanc pour les PNG transparents
+     */
+    private static BufferedImage redimensionner(BufferedImage source, int tailleMax) {
+        double echelle = Math.min(1.0, (double) tailleMax / Math.max(source.getWidth(), source.getHeight()));
+        int largeur = Math.max(1, (int) Math.round(source.getWidth() * echelle));
+        int hauteur = Math.max(1, (int) Math.round(source.getHeight() * echelle));
+
+        BufferedImage cible = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = cible.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, largeur, hauteur, Color.WHITE, null);
+        } finally {
+            g.dispose();
+        }
+        return cible;
+    }
+
+    /**
+     * Encode un JPEG dans un fichier temporaire puis le confie au stockage
+     */
+    private void publier(BufferedImage image, String nom) throws IOException {
+        Path temporaire = fileStorageService.nouveauFichierTemporaire();
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream sortie = ImageIO.createImageOutputStream(temporaire.toFile())) {
+                writer.setOutput(sortie);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(qualite);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            photoStorage.enregistrer(nom, temporaire);
+        } finally {
+            Files.deleteIfExists(temporaire);
+        }
+    }
+
+    /**
+     * Métriques du pipeline : profondeur de file, volumes et temps de traitement
+     *
+     * @return Map de métriques
+     */
+    public Map<String, Object> getMetriques() {
+        long nombre = traitees.sum();
+        Map<String, Object> metriques = new LinkedHashMap<>();
+        metriques.put("fileAttente", executor.getThreadPoolExecutor().getQueue().size());
+        metriques.put("enCours", executor.getActiveCount());
+        metriques.put("traitees", nombre);
+        metriques.put("echecs", echecs.sum());
+        metriques.put("refusees", refusees.sum());
+        metriques.put("dureeMoyenneMs", nombre > 0 ? dureeTotaleMs.sum() / nombre : 0);
+        metriques.put("dureeMaxMs", dureeMaxMs.get());
+        return metriques;
+    }
+}
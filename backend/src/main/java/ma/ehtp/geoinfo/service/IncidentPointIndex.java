@@ -0,0 +1,181 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.entity.Incident;
+import ma.ehtp.geoinfo.event.IncidentStatutChangeEvent;
+import ma.ehtp.geoinfo.geo.TileMath;
+import ma.ehtp.geoinfo.repository.IncidentRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Index spatial en mémoire des incidents publiés sur la carte (VALIDE)
+ *
+ * Les points sont triés par code de Morton (TileMath) : les incidents d'une
+ * tuile (z, x, y) s'obtiennent par une simple recherche d'intervalle.
+ * Chargé au démarrage, tenu à jour par les IncidentStatutChangeEvent et
+ * rechargé périodiquement. Chaque rechargement incrémente la version, ce qui
+ * permet aux caches dérivés (clusters, heatmap) de s'invalider.
+ *
+ * Le listener est ordonné en premier pour que les caches dérivés, invalidés
+ * par le même événement, se recalculent sur l'index à jour.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IncidentPointIndex {
+
+    /**
+     * Ordre du listener de l'index (les caches dérivés utilisent une valeur supérieure)
+     */
+    public static final int ORDRE_LISTENER = 0;
+
+    private static final Comparator<PointIncident> ORDRE_MORTON = Comparator
+            .comparingLong(PointIncident::getMorton)
+            .thenComparingLong(PointIncident::getId);
+
+    private final IncidentRepository incidentRepository;
+
+    private volatile Etat etat = new Etat(0);
+
+    /**
+     * Charge l'index une fois l'application démarrée
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        try {
+            recharger();
+        } catch (Exception e) {
+            log.error("Chargement de l'index spatial des incidents impossible", e);
+        }
+    }
+
+    /**
+     * Recharge entièrement l'index depuis la base
+     */
+    @Scheduled(fixedDelayString = "${points.reconciliation-ms:900000}",
+            initialDelayString = "${points.reconciliation-ms:900000}")
+    public void recharger() {
+        long debut = System.currentTimeMillis();
+        Etat nouvel = new Etat(etat.version + 1);
+
+        List<Object[]> lignes = incidentRepository.findPointsCartePublique();
+        for (Object[] ligne : lignes) {
+            nouvel.ajouter(new PointIncident(
+                    ((Number) ligne[0]).longValue(),
+                    ((Number) ligne[1]).doubleValue(),
+                    ((Number) ligne[2]).doubleValue(),
+                    TileMath.morton(((Number) ligne[1]).doubleValue(), ((Number) ligne[2]).doubleValue()),
+                    Incident.StatutIncident.valueOf((String) ligne[3]),
+                    ligne[4] != null ? ((Number) ligne[4]).longValue() : null));
+        }
+
+        this.etat = nouvel;
+        log.info("Index spatial chargé : {} incident(s) publiés en {} ms (version {})",
+                lignes.size(), System.currentTimeMillis() - debut, nouvel.version);
+    }
+
+    /**
+     * Met à jour l'index après un changement de statut
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ORDRE_LISTENER)
+    public void onStatutChange(IncidentStatutChangeEvent event) {
+        if (event.getLatitude() == null || event.getLongitude() == null) {
+            return;
+        }
+        Etat courant = this.etat;
+        courant.retirer(event.getIncidentId());
+        if (IncidentStatutChangeEvent.isSurCarte(event.getNouveauStatut())) {
+            courant.ajouter(new PointIncident(
+                    event.getIncidentId(),
+                    event.getLongitude(),
+                    event.getLatitude(),
+                    TileMath.morton(event.getLongitude(), event.getLatitude()),
+                    event.getNouveauStatut(),
+                    event.getSecteurId()));
+        }
+    }
+
+    /**
+     * Incidents publiés situés dans la tuile (z, x, y)
+     */
+    public NavigableSet<PointIncident> dansTuile(int z, int x, int y) {
+        long debut = TileMath.mortonDebut(z, x, y);
+        long fin = TileMath.mortonFin(z, x, y);
+        return etat.parMorton.subSet(
+                new PointIncident(Long.MIN_VALUE, 0, 0, debut, null, null), true,
+                new PointIncident(Long.MIN_VALUE, 0, 0, fin, null, null), false);
+    }
+
+    /**
+     * Version courante de l'index (incrémentée à chaque rechargement complet)
+     */
+    public long getVersion() {
+        return etat.version;
+    }
+
+    /**
+     * Nombre d'incidents indexés
+     */
+    public int taille() {
+        return etat.parId.size();
+    }
+
+    /**
+     * Point indexé (valeurs immuables)
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class PointIncident {
+        private final long id;
+        private final double longitude;
+        private final double latitude;
+        private final long morton;
+        private final Incident.StatutIncident statut;
+        private final Long secteurId;
+    }
+
+    /**
+     * Contenu de l'index, remplacé en bloc à chaque rechargement
+     */
+    private static class Etat {
+
+        private final long version;
+        private final NavigableSet<PointIncident> parMorton = new ConcurrentSkipListSet<>(ORDRE_MORTON);
+        private final Map<Long, PointIncident> parId = new ConcurrentHashMap<>();
+
+        Etat(long version) {
+            this.version = version;
+        }
+
+        void ajouter(PointIncident point) {
+            PointIncident precedent = parId.put(point.getId(), point);
+            if (precedent != null) {
+                parMorton.remove(precedent);
+            }
+            parMorton.add(point);
+        }
+
+        void retirer(long id) {
+            PointIncident precedent = parId.remove(id);
+            if (precedent != null) {
+                parMorton.remove(precedent);
+            }
+        }
+    }
+}
@@ -5,17 +5,17 @@ import lombok.extern.slf4j.Slf4j;
 import ma.ehtp.geoinfo.dto.response.IncidentResponse;
 import ma.ehtp.geoinfo.dto.response.StatistiquesResponse;
 import ma.ehtp.geoinfo.entity.Incident;
+import ma.ehtp.geoinfo.event.IncidentStatutChangeEvent;
 import ma.ehtp.geoinfo.repository.IncidentRepository;
 import ma.ehtp.geoinfo.repository.SecteurRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -31,6 +31,8 @@ public class IncidentService {
 
         private final IncidentRepository incidentRepository;
         private final SecteurRepository secteurRepository;
+        private final StatistiquesEngine statistiquesEngine;
+        private final ApplicationEventPublisher eventPublisher;
 
         /**
          * Récupère tous les incidents PUBLICS avec pagination
@@ -114,73 +116,16 @@ public class IncidentService {
         }
 
         /**
-         * Calcule les statistiques globales des incidents PUBLICS
+         * Récupère les statistiques globales des incidents PUBLICS
          * Exclut REDIGE et BLOQUE
+         * Servies par le moteur en mémoire (aucun accès base)
          * 
          * @return Map de statistiques
          */
-        @Transactional(readOnly = true)
         public Map<String, Object> getStatistics() {
-                log.info("Calcul des statistiques globales (publics uniquement)");
-
-                // Exclure REDIGE et BLOQUE des statistiques publiques
-                List<Incident> allIncidents = incidentRepository.findAll().stream()
-                                .filter(i -> i.getStatut() != Incident.StatutIncident.REDIGE
-                                                && i.getStatut() != Incident.StatutIncident.BLOQUE)
-                                .collect(Collectors.toList());
-
-                Map<String, Object> stats = new HashMap<>();
-
-                // Statistiques générales (sans REDIGE ni BLOQUE)
-                stats.put("total", allIncidents.size());
-                stats.put("valide", countByStatut(allIncidents, Incident.StatutIncident.VALIDE));
-                stats.put("prisEnCompte", countByStatut(allIncidents, Incident.StatutIncident.PRIS_EN_COMPTE));
-                stats.put("enCours", countByStatut(allIncidents, Incident.StatutIncident.EN_COURS_DE_TRAITEMENT));
-                stats.put("traite", countByStatut(allIncidents, Incident.StatutIncident.TRAITE));
-                stats.put("rejete", countByStatut(allIncidents, Incident.StatutIncident.REJETE));
-                stats.put("redirige", countByStatut(allIncidents, Incident.StatutIncident.REDIRIGE));
-
-                // Statistiques par secteur
-                Map<String, Long> parSecteur = allIncidents.stream()
-                                .collect(Collectors.groupingBy(
-                                                i -> i.getSecteur().getNom(),
-                                                Collectors.counting()));
-                stats.put("parSecteur", parSecteur);
-
-                // Statistiques par province
-                Map<String, Long> parProvince = allIncidents.stream()
-                                .filter(i -> i.getProvince() != null)
-                                .collect(Collectors.groupingBy(
-                                                Incident::getProvince,
-                                                Collectors.counting()));
-                stats.put("parProvince", parProvince);
-
-                // Statistiques par type
-                Map<String, Long> parType = allIncidents.stream()
-                                .collect(Collectors.groupingBy(
-                                                Incident::getTypeIncident,
-                                                Collectors.counting()));
-                stats.put("parType", parType);
-
-                // Taux de résolution
-                long totalTraites = countByStatut(allIncidents, Incident.StatutIncident.TRAITE);
-                double tauxResolution = allIncidents.size() > 0
-                                ? (double) totalTraites / allIncidents.size() * 100
-                                : 0;
-                stats.put("tauxResolution", Math.round(tauxResolution * 100.0) / 100.0);
-
-                log.info("Statistiques calculées : {} incidents au total", allIncidents.size());
+                log.info("Récupération des statistiques globales (publics uniquement)");
 
-                return stats;
-        }
-
-        /**
-         * Compte les incidents par statut
-         */
-        private long countByStatut(List<Incident> incidents, Incident.StatutIncident statut) {
-                return incidents.stream()
-                                .filter(i -> i.getStatut() == statut)
-                                .count();
+                return statistiquesEngine.getStatistics();
         }
 
         /**
@@ -207,6 +152,7 @@ public class IncidentService {
                 }
 
                 // Mettre à jour le statut
+                Incident.StatutIncident ancienStatut = incident.getStatut();
                 incident.setStatut(statutEnum);
 
                 // Gérer le commentaire selon le statut
@@ -217,6 +163,7 @@ public class IncidentService {
                 }
 
                 Incident saved = incidentRepository.save(incident);
+                eventPublisher.publishEvent(IncidentStatutChangeEvent.of(saved, ancienStatut));
                 log.info("Incident {} mis à jour avec statut {}", id, newStatut);
 
                 return mapToResponse(saved);
@@ -234,6 +181,8 @@ public class IncidentService {
                                 .longitude(incident.getLongitude())
                                 .province(incident.getProvince())
                                 .photoUrl(incident.getPhotoUrl())
+                                .photoMiniatureUrl(incident.getPhotoMiniatureUrl())
+                                .photoWebUrl(incident.getPhotoWebUrl())
                                 .dateDeclaration(incident.getDateDeclaration())
                                 .statut(incident.getStatut().name())
                                 .secteurId(incident.getSecteur().getId())
@@ -250,6 +199,7 @@ public class IncidentService {
 
         /**
          * Calcule les statistiques globales de la plateforme
+         * Une seule requête d'agrégation (GROUPING SETS), sans chargement d'entités
          * 
          * @return Statistiques en temps réel
          */
@@ -257,61 +207,51 @@ public class IncidentService {
         public StatistiquesResponse getStatistiques() {
                 log.info("Calcul des statistiques globales");
 
-                // Total incidents (tous statuts sauf REDIGE et REJETE)
-                List<Incident.StatutIncident> excludedStatuts = Arrays.asList(
-                                Incident.StatutIncident.REDIGE,
-                                Incident.StatutIncident.REJETE);
-                long totalIncidents = incidentRepository.countByStatutNotIn(excludedStatuts);
+                List<Object[]> lignes = incidentRepository.aggregateStatistiques(LocalDateTime.now().minusDays(30));
 
+                // Total incidents (tous statuts sauf REDIGE et REJETE)
+                long totalIncidents = 0;
                 // Incidents résolus (statut TRAITE)
-                long incidentsResolus = incidentRepository.countByStatut(Incident.StatutIncident.TRAITE);
+                long incidentsResolus = 0;
+                Double delaiMoyenHeures = null;
+
+                for (Object[] ligne : lignes) {
+                        delaiMoyenHeures = ligne[4] != null ? ((Number) ligne[4]).doubleValue() : null;
+                        if (!"STATUT".equals(ligne[0])) {
+                                continue;
+                        }
+                        Incident.StatutIncident statut = Incident.StatutIncident.valueOf((String) ligne[1]);
+                        long nombre = ((Number) ligne[2]).longValue();
+                        if (statut != Incident.StatutIncident.REDIGE && statut != Incident.StatutIncident.REJETE) {
+                                totalIncidents += nombre;
+                        }
+                        if (statut == Incident.StatutIncident.TRAITE) {
+                                incidentsResolus = nombre;
+                        }
+                }
 
                 // Taux de résolution (pourcentage)
                 int tauxResolution = totalIncidents > 0
                                 ? (int) Math.round((incidentsResolus * 100.0) / totalIncidents)
                                 : 0;
 
-                // Délai moyen de traitement
-                String delaiMoyen = calculerDelaiMoyen();
-
                 return StatistiquesResponse.builder()
                                 .totalIncidents(totalIncidents)
                                 .incidentsResolus(incidentsResolus)
                                 .tauxResolution(tauxResolution)
-                                .delaiMoyen(delaiMoyen)
+                                .delaiMoyen(formaterDelai(delaiMoyenHeures))
                                 .build();
         }
 
         /**
-         * Calcule le délai moyen de traitement en heures
-         * Basé sur les incidents TRAITE des 30 derniers jours
+         * Formate le délai moyen de traitement (calculé en SQL sur les incidents
+         * TRAITE des 30 derniers jours) en heures ou en jours
          */
-        private String calculerDelaiMoyen() {
-                List<Incident> incidentsTraites = incidentRepository.findByStatut(Incident.StatutIncident.TRAITE);
-
-                if (incidentsTraites.isEmpty()) {
+        private String formaterDelai(Double moyenneHeures) {
+                if (moyenneHeures == null) {
                         return "N/A";
                 }
 
-                // Filtrer les incidents des 30 derniers jours avec date de traitement
-                LocalDateTime dateLimit = LocalDateTime.now().minusDays(30);
-                List<Long> delaisEnHeures = incidentsTraites.stream()
-                                .filter(i -> i.getDateTraitement() != null && i.getDateDeclaration() != null)
-                                .filter(i -> i.getDateTraitement().isAfter(dateLimit))
-                                .map(i -> Duration.between(i.getDateDeclaration(), i.getDateTraitement()).toHours())
-                                .filter(h -> h > 0) // Exclure valeurs négatives ou nulles
-                                .collect(Collectors.toList());
-
-                if (delaisEnHeures.isEmpty()) {
-                        return "N/A";
-                }
-
-                // Calculer moyenne
-                double moyenneHeures = delaisEnHeures.stream()
-                                .mapToLong(Long::longValue)
-                                .average()
-                                .orElse(0);
-
                 // Formater en heures ou jours
                 if (moyenneHeures < 24) {
                         return Math.round(moyenneHeures) + "h";
@@ -0,0 +1,287 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.dto.response.NettoyagePhotosResponse;
+import ma.ehtp.geoinfo.storage.LocalPhotoStorage;
+import ma.ehtp.geoinfo.storage.PhotoStorage;
+import ma.ehtp.geoinfo.util.FiltreBloom;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Ramasse-miettes des photos orphelines (marquage puis balayage)
+ *
+ * Une déclaration qui échoue après le stockage de la photo (ex: échec de
+ * incidentRepository.save) laisse un fichier qu'aucun incident ne référence.
+ * Périodiquement :
+ * 1. marquage : les photo_url des incidents sont lues en flux (curseur) et
+ *    leurs noms, avec ceux des variantes, ajoutés à un filtre de Bloom ;
+ * 2. balayage : le répertoire de stockage est parcouru (Files.walkFileTree)
+ *    à débit limité ; les fichiers absents du filtre et plus anciens que le
+ *    délai de grâce sont supprimés, ainsi que les temporaires abandonnés.
+ *
+ * Un faux positif du filtre ne fait que conserver un orphelin jusqu'au
+ * passage suivant ; un fichier référencé n'est jamais supprimé. Le délai de
+ * grâce couvre les déclarations en cours pendant le marquage (un contenu
+ * réutilisé voit sa date rafraîchie par LocalPhotoStorage).
+ *
+ * Le passage s'exécute sur l'exécuteur "nettoyageExecutor" : le planificateur
+ * ne fait que le déclencher, sans attendre la fin du balayage.
+ *
+ * Ne concerne que le stockage local ; un bucket S3 relève de ses propres
+ * règles de cycle de vie.
+ */
+@Service
+@Slf4j
+public class NettoyagePhotosService {
+
+    private static final int TAILLE_LOT_LECTURE = 10_000;
+    private static final double TAUX_FAUX_POSITIFS = 0.01;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate lecture;
+    private final PhotoStorage photoStorage;
+    private final FileStorageService fileStorageService;
+    private final Duration delaiGrace;
+    private final int fichiersParSeconde;
+    private final TaskExecutor executor;
+
+    private volatile NettoyagePhotosResponse dernierRapport;
+
+    public NettoyagePhotosService(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            PhotoStorage photoStorage,
+            FileStorageService fileStorageService,
+            @Value("${photos.nettoyage.delai-grace-heures:24}") long delaiGraceHeures,
+            @Value("${photos.nettoyage.fichiers-par-seconde:500}") int fichiersParSeconde,
+            @Qualifier("nettoyageExecutor") TaskExecutor executor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lecture = new TransactionTemplate(transactionManager);
+        this.lecture.setReadOnly(true);
+        this.photoStorage = photoStorage;
+        this.fileStorageService = fileStorageService;
+        this.delaiGrace = Duration.ofHours(delaiGraceHeures);
+        this.fichiersParSeconde = fichiersParSeconde;
+        this.executor = executor;
+    }
+
+    /**
+     * Déclenchement périodique du ramasse-miettes, exécuté en arrière-plan
+     */
+    @Scheduled(fixedDelayString = "${photos.nettoyage.intervalle-ms:86400000}",
+            initialDelayString = "${photos.nettoyage.delai-initial-ms:3600000}")
+    public void planifier() {
+        if (!(photoStorage instanceof LocalPhotoStorage)) {
+            return;
+        }
+        try {
+            executor.execute(this::nettoyer);
+        } catch (TaskRejectedException e) {
+            log.warn("Nettoyage des photos encore en cours : passage ignoré");
+        }
+    }
+
+    /**
+     * Passage du ramasse-miettes (marquage puis balayage)
+     */
+    void nettoyer() {
+        if (!(photoStorage instanceof LocalPhotoStorage local)) {
+            return;
+        }
+
+        LocalDateTime dateDebut = LocalDateTime.now();
+        long debut = System.currentTimeMillis();
+        Balayage balayage = null;
+        try {
+            Marquage marquage = marquer();
+
+            balayage = new Balayage(marquage.filtre(), local.getRacine(),
+                    FileTime.from(Instant.now().minus(delaiGrace)));
+            Files.walkFileTree(local.getRacine(), balayage);
+
+            dernierRapport = NettoyagePhotosResponse.builder()
+                    .statut("TERMINE")
+                    .dateDebut(dateDebut)
+                    .dureeMs(System.currentTimeMillis() - debut)
+                    .references(marquage.references())
+                    .tailleFiltreOctets(marquage.filtre().getTailleOctets())
+                    .fichiersParcourus(balayage.parcourus)
+                    .fichiersSupprimes(balayage.supprimes)
+                    .octetsRecuperes(balayage.octets)
+                    .erreurs(balayage.erreurs)
+                    .build();
+
+            log.info("Nettoyage des photos : {} fichier(s) parcouru(s), {} supprimé(s), {} Mo récupéré(s) en {} s",
+                    balayage.parcourus, balayage.supprimes, balayage.octets / (1024 * 1024),
+                    (System.currentTimeMillis() - debut) / 1000);
+        } catch (Exception e) {
+            log.error("Nettoyage des photos interrompu", e);
+            dernierRapport = NettoyagePhotosResponse.builder()
+                    .statut("ECHEC")
+                    .dateDebut(dateDebut)
+                    .dureeMs(System.currentTimeMillis() - debut)
+                    .fichiersParcourus(balayage != null ? balayage.parcourus : 0)
+                    .fichiersSupprimes(balayage != null ? balayage.supprimes : 0)
+                    .octetsRecuperes(balayage != null ? balayage.octets : 0)
+                    .erreurs(balayage != null ? balayage.erreurs : 0)
+                    .erreur(e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Rapport du dernier passage
+     */
+    public NettoyagePhotosResponse getDernierRapport() {
+        NettoyagePhotosResponse rapport = this.dernierRapport;
+        return rapport != null ? rapport : NettoyagePhotosResponse.builder().statut("AUCUN").build();
+    }
+
+    /**
+     * Phase de marquage : noms des photos référencées et de leurs variantes
+     * Lecture par curseur (fetch size) dans une transaction en lecture seule
+     */
+    private Marquage marquer() {
+        return lecture.execute(status -> {
+            Long nombre = jdbcTemplate.queryForObject("SELECT COUNT(photo_url) FROM incidents", Long.class);
+            // Original + miniature + version web
+            FiltreBloom filtre = FiltreBloom.dimensionner(3 * (nombre != null ? nombre : 0), TAUX_FAUX_POSITIFS);
+            long[] lus = { 0 };
+
+            jdbcTemplate.query(connexion -> {
+                PreparedStatement ps = connexion.prepareStatement(
+                        "SELECT photo_url FROM incidents WHERE photo_url IS NOT NULL");
+                ps.setFetchSize(TAILLE_LOT_LECTURE);
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                String url = rs.getString(1);
+                String nom = url.substring(url.lastIndexOf('/') + 1);
+                if (!nom.isEmpty()) {
+                    filtre.ajouter(nom);
+                    FileStorageService.getVariantes(nom).forEach(filtre::ajouter);
+                    lus[0]++;
+                }
+            });
+            return new Marquage(filtre, lus[0]);
+        });
+    }
+
+    /**
+     * Résultat du marquage
+     *
+     * @param filtre      Noms référencés (originaux et variantes)
+     * @param references  Nombre de photo_url lues
+     */
+    private record Marquage(FiltreBloom filtre, long references) {
+    }
+
+    /**
+     * Phase de balayage, limitée à fichiersParSeconde fichiers examinés
+     */
+    private class Balayage extends SimpleFileVisitor<Path> {
+
+        private final FiltreBloom references;
+        private final Path temporaires;
+        private final FileTime limite;
+        private final long debut = System.nanoTime();
+
+        private long parcourus;
+        private long supprimes;
+        private long octets;
+        private long erreurs;
+
+        Balayage(FiltreBloom references, Path racine, FileTime limite) {
+            this.references = references;
+            this.temporaires = racine.resolve(".tmp");
+            this.limite = limite;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path fichier, BasicFileAttributes attributs) throws IOException {
+            parcourus++;
+            limiterDebit();
+
+            if (!attributs.isRegularFile() || attributs.lastModifiedTime().compareTo(limite) > 0) {
+                return FileVisitResult.CONTINUE;
+            }
+
+            String nom = fichier.getFileName().toString();
+            boolean temporaire = fichier.startsWith(temporaires);
+            if (!temporaire && references.contientPeutEtre(nom)) {
+                return FileVisitResult.CONTINUE;
+            }
+            // Contrôle final en base (référence créée depuis le marquage) ; une variante
+            // est conservée tant que son original est référencé : un original réutilisé
+            // pendant le balayage reprend ses variantes existantes (ImageVariantesService)
+            if (!temporaire) {
+                long referencesEnBase = isVariante(nom)
+                        ? fileStorageService.compterReferencesVariante(nom)
+                        : fileStorageService.compterReferences(nom);
+                if (referencesEnBase > 0) {
+                    return FileVisitResult.CONTINUE;
+                }
+            }
+
+            try {
+                Files.delete(fichier);
+                supprimes++;
+                octets += attributs.size();
+                log.debug("Photo orpheline supprimée : {} ({} octets)", fichier, attributs.size());
+            } catch (IOException e) {
+                erreurs++;
+                log.warn("Suppression de {} impossible : {}", fichier, e.getMessage());
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path fichier, IOException e) {
+            erreurs++;
+            log.warn("Lecture de {} impossible : {}", fichier, e.getMessage());
+            return FileVisitResult.CONTINUE;
+        }
+
+        /**
+         * Endort le thread si le balayage est en avance sur le débit autorisé
+         */
+        private void limiterDebit() throws IOException {
+            if (fichiersParSeconde <= 0 || parcourus % 100 != 0) {
+                return;
+            }
+            long attenduMs = parcourus * 1000 / fichiersParSeconde;
+            long ecouleMs = (System.nanoTime() - debut) / 1_000_000;
+            if (attenduMs > ecouleMs) {
+                try {
+                    Thread.sleep(attenduMs - ecouleMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Nettoyage des photos interrompu", e);
+                }
+            }
+        }
+
+        private boolean isVariante(String nom) {
+            return nom.endsWith(FileStorageService.SUFFIXE_MINIATURE) || nom.endsWith(FileStorageService.SUFFIXE_WEB);
+        }
+    }
+}
@@ -5,9 +5,11 @@ import lombok.extern.slf4j.Slf4j;
 import ma.ehtp.geoinfo.dto.response.IncidentResponse;
 import ma.ehtp.geoinfo.entity.Incident;
 import ma.ehtp.geoinfo.entity.Professionnel;
+import ma.ehtp.geoinfo.event.IncidentStatutChangeEvent;
 import ma.ehtp.geoinfo.exception.ResourceNotFoundException;
 import ma.ehtp.geoinfo.repository.IncidentRepository;
 import ma.ehtp.geoinfo.repository.ProfessionnelRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +28,7 @@ public class ProfessionnelService {
 
     private final IncidentRepository incidentRepository;
     private final ProfessionnelRepository professionnelRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Récupère les incidents d'un professionnel
@@ -95,6 +98,7 @@ public class ProfessionnelService {
         incident.setStatut(Incident.StatutIncident.PRIS_EN_COMPTE);
         incident.setProfessionnelAffecte(professionnel);
         incident = incidentRepository.save(incident);
+        eventPublisher.publishEvent(IncidentStatutChangeEvent.of(incident, Incident.StatutIncident.VALIDE));
 
         log.info("Incident pris en compte : id={}", incidentId);
 
@@ -130,6 +134,8 @@ public class ProfessionnelService {
         // Mettre à jour
         incident.setStatut(Incident.StatutIncident.EN_COURS_DE_TRAITEMENT);
         incident = incidentRepository.save(incident);
+        eventPublisher.publishEvent(
+                IncidentStatutChangeEvent.of(incident, Incident.StatutIncident.PRIS_EN_COMPTE));
 
         log.info("Traitement démarré : id={}", incidentId);
 
@@ -168,6 +174,8 @@ public class ProfessionnelService {
         incident.setDescriptionTraitement(descriptionTraitement);
         incident.setDateTraitement(LocalDateTime.now());
         incident = incidentRepository.save(incident);
+        eventPublisher.publishEvent(
+                IncidentStatutChangeEvent.of(incident, Incident.StatutIncident.EN_COURS_DE_TRAITEMENT));
 
         log.info("Incident traité : id={}", incidentId);
 
@@ -197,9 +205,11 @@ public class ProfessionnelService {
         }
 
         // Mettre à jour
+        Incident.StatutIncident ancienStatut = incident.getStatut();
         incident.setStatut(Incident.StatutIncident.BLOQUE);
         incident.setDescriptionTraitement(motif);
         incident = incidentRepository.save(incident);
+        eventPublisher.publishEvent(IncidentStatutChangeEvent.of(incident, ancienStatut));
 
         log.info("Incident bloqué : id={}", incidentId);
 
@@ -235,6 +245,7 @@ public class ProfessionnelService {
         // Mettre à jour
         incident.setStatut(Incident.StatutIncident.EN_COURS_DE_TRAITEMENT);
         incident = incidentRepository.save(incident);
+        eventPublisher.publishEvent(IncidentStatutChangeEvent.of(incident, Incident.StatutIncident.BLOQUE));
 
         log.info("Incident débloqué : id={}", incidentId);
 
@@ -290,6 +301,7 @@ public class ProfessionnelService {
         }
 
         // Mettre à jour le statut (SANS RESTRICTION D'ENCHAÎNEMENT)
+        Incident.StatutIncident ancienStatut = incident.getStatut();
         incident.setStatut(statutEnum);
 
         // Ajouter le commentaire si fourni
@@ -303,6 +315,7 @@ public class ProfessionnelService {
         }
 
         incident = incidentRepository.save(incident);
+        eventPublisher.publishEvent(IncidentStatutChangeEvent.of(incident, ancienStatut));
 
         log.info("Statut incident {} mis à jour vers {}", incidentId, nouveauStatut);
 
@@ -321,6 +334,8 @@ public class ProfessionnelService {
                 .longitude(incident.getLongitude())
                 .province(incident.getProvince())
                 .photoUrl(incident.getPhotoUrl())
+                .photoMiniatureUrl(incident.getPhotoMiniatureUrl())
+                .photoWebUrl(incident.getPhotoWebUrl())
                 .dateDeclaration(incident.getDateDeclaration())
                 .statut(incident.getStatut().name())
                 .secteurId(incident.getSecteur().getId())
@@ -0,0 +1,215 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.entity.Province;
+import ma.ehtp.geoinfo.event.ProvincesModifieesEvent;
+import ma.ehtp.geoinfo.geo.GrilleProvinces;
+import ma.ehtp.geoinfo.repository.ProvinceRepository;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.io.WKBWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Résolution en mémoire de la province contenant un point
+ *
+ * 1. Grille de correspondance (GrilleProvinces) : la plupart des points
+ *    tombent dans une cellule entièrement intérieure à une province, la
+ *    réponse est une simple lecture de tableau.
+ * 2. Pour les cellules frontière, les MultiPolygon des provinces sont
+ *    interrogés via un STRtree JTS de PreparedGeometry : la recherche par
+ *    enveloppe sélectionne quelques candidats, puis le test d'inclusion
+ *    préparé tranche en quelques microsecondes, sans aller-retour vers PostGIS.
+ *
+ * Reconstruit au démarrage et à chaque ProvincesModifieesEvent ; l'index
+ * (immuable une fois construit) est remplacé en bloc. La grille peut être
+ * conservée dans un fichier (geolocation.grille.fichier) et relue par
+ * projection mémoire tant que les provinces n'ont pas changé.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProvinceResolver {
+
+    private final ProvinceRepository provinceRepository;
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    @Value("${geolocation.grille.pas:0.01}")
+    private double pasGrille;
+
+    @Value("${geolocation.grille.fichier:}")
+    private String fichierGrille;
+
+    private volatile Index index = new Index(null, null, List.of());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        try {
+            recharger();
+        } catch (Exception e) {
+            log.error("Chargement des provinces en mémoire impossible, résolution par PostGIS", e);
+        }
+    }
+
+    @EventListener
+    public void onProvincesModifiees(ProvincesModifieesEvent event) {
+        recharger();
+    }
+
+    /**
+     * Reconstruit l'arbre et la grille depuis la table provinces
+     * (findAll s'exécute dans sa propre transaction en lecture seule ; Province
+     * n'a pas d'association paresseuse)
+     */
+    public void recharger() {
+        long debut = System.currentTimeMillis();
+
+        List<Province> provinces = new ArrayList<>(provinceRepository.findAll());
+        provinces.removeIf(p -> p.getGeometry() == null || p.getGeometry().isEmpty());
+        provinces.sort(Comparator.comparing(Province::getId));
+
+        STRtree arbre = new STRtree();
+        List<Entree> entrees = new ArrayList<>(provinces.size());
+        List<PreparedGeometry> geometries = new ArrayList<>(provinces.size());
+        for (Province province : provinces) {
+            PreparedGeometry geometrie = PreparedGeometryFactory.prepare(province.getGeometry());
+            Entree entree = new Entree(province.getId(), province.getNom(), geometrie);
+            arbre.insert(province.getGeometry().getEnvelopeInternal(), entree);
+            entrees.add(entree);
+            geometries.add(geometrie);
+        }
+        arbre.build();
+
+        GrilleProvinces grille = entrees.isEmpty() ? null : chargerGrille(provinces, geometries);
+
+        this.index = new Index(entrees.isEmpty() ? null : arbre, grille, entrees);
+        log.info("Index des provinces chargé : {} géométrie(s) en {} ms",
+                entrees.size(), System.currentTimeMillis() - debut);
+    }
+
+    /**
+     * Relit la grille depuis le fichier de cache si elle est à jour, sinon la construit
+     * Une grille indisponible n'empêche pas la résolution (STRtree seul)
+     */
+    private GrilleProvinces chargerGrille(List<Province> provinces, List<PreparedGeometry> geometries) {
+        try {
+            long debut = System.currentTimeMillis();
+            Path fichier = fichierGrille.isBlank() ? null : Path.of(fichierGrille);
+            String empreinte = fichier != null ? empreinte(provinces) : null;
+
+            if (fichier != null) {
+                GrilleProvinces grille = GrilleProvinces.charger(fichier, empreinte, pasGrille);
+                if (grille != null) {
+                    log.info("Grille des provinces projetée depuis {} ({} cellules)",
+                            fichier, grille.getNombreCellules());
+                    return grille;
+                }
+            }
+
+            GrilleProvinces grille = GrilleProvinces.construire(geometries, pasGrille);
+            log.info("Grille des provinces construite : {} cellules, {} % en frontière, en {} ms",
+                    grille.getNombreCellules(), Math.round(grille.tauxFrontiere() * 1000) / 10.0,
+                    System.currentTimeMillis() - debut);
+
+            if (fichier != null) {
+                grille.ecrire(fichier, empreinte);
+            }
+            return grille;
+        } catch (Exception e) {
+            log.error("Grille des provinces indisponible, résolution par STRtree uniquement", e);
+            return null;
+        }
+    }
+
+    /**
+     * Empreinte des provinces (identifiants, noms, géométries) et du pas de la grille
+     */
+    private String empreinte(List<Province> provinces) throws NoSuchAlgorithmException {
+        MessageDigest sha = MessageDigest.getInstance("SHA-256");
+        WKBWriter wkb = new WKBWriter();
+        sha.update(Double.toString(pasGrille).getBytes(StandardCharsets.UTF_8));
+        for (Province province : provinces) {
+            sha.update((province.getId() + "|" + province.getNom() + "|").getBytes(StandardCharsets.UTF_8));
+            sha.update(wkb.write(province.getGeometry()));
+        }
+        return HexFormat.of().formatHex(sha.digest());
+    }
+
+    /**
+     * Indique si des géométries sont chargées (sinon la résolution doit passer par PostGIS)
+     */
+    public boolean isDisponible() {
+        return index.arbre != null;
+    }
+
+    /**
+     * Nom de la province contenant le point (bord inclus)
+     *
+     * @param latitude  Latitude
+     * @param longitude Longitude
+     * @return Nom de la province, vide si le point est hors de toute province
+     */
+    public Optional<String> resoudre(double latitude, double longitude) {
+        Index courant = this.index;
+        if (courant.arbre == null) {
+            return Optional.empty();
+        }
+
+        if (courant.grille != null) {
+            int cellule = courant.grille.cellule(longitude, latitude);
+            if (cellule >= 0) {
+                return Optional.of(courant.entrees.get(cellule).nom);
+            }
+            if (cellule == GrilleProvinces.AUCUNE) {
+                return Optional.empty();
+            }
+        }
+        return resoudreExactement(courant.arbre, latitude, longitude);
+    }
+
+    /**
+     * Test d'inclusion exact sur les candidats du STRtree
+     */
+    @SuppressWarnings("unchecked")
+    private Optional<String> resoudreExactement(STRtree arbre, double latitude, double longitude) {
+        Point point = geometryFactory.createPoint(new Coordinate(longitude, latitude));
+        List<Entree> candidats = arbre.query(new Envelope(longitude, longitude, latitude, latitude));
+
+        Entree trouvee = null;
+        for (Entree candidat : candidats) {
+            if (candidat.geometrie.covers(point) && (trouvee == null || candidat.id < trouvee.id)) {
+                trouvee = candidat;
+            }
+        }
+        return trouvee != null ? Optional.of(trouvee.nom) : Optional.empty();
+    }
+
+    public int taille() {
+        return index.entrees.size();
+    }
+
+    private record Entree(Long id, String nom, PreparedGeometry geometrie) {
+    }
+
+    private record Index(STRtree arbre, GrilleProvinces grille, List<Entree> entrees) {
+    }
+}
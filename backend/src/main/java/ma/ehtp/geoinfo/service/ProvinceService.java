@@ -3,67 +3,284 @@ package ma.ehtp.geoinfo.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ma.ehtp.geoinfo.entity.Province;
+import ma.ehtp.geoinfo.event.ProvincesModifieesEvent;
+import ma.ehtp.geoinfo.geo.TopoJsonEncoder;
 import ma.ehtp.geoinfo.repository.ProvinceRepository;
+import ma.ehtp.geoinfo.util.DocumentCompresse;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service pour la gestion des provinces
  * Fournit les données géographiques au format GeoJSON
+ *
+ * Les géométries sont précalculées à plusieurs niveaux de détail
+ * (ST_SimplifyPreserveTopology, table province_simplifications) et découpées
+ * en petits polygones pour les tests d'inclusion (ST_Subdivide, table
+ * province_parts). Le GeoJSON
+ * de chaque niveau est généré une seule fois puis conservé brut et gzippé
+ * (DocumentCompresse), jusqu'à la prochaine modification de la table provinces
+ *
+ * Le format TopoJSON (frontières communes encodées une seule fois) est produit
+ * en Java par TopoJsonEncoder à partir des géométries d'origine, avec une
+ * quantification adaptée au niveau de détail
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProvinceService {
 
+    // Nombre maximal de sommets d'un polygone de province_parts
+    private static final int SOMMETS_MAX_PAR_PARTIE = 256;
+
     private final ProvinceRepository provinceRepository;
     private final JdbcTemplate jdbcTemplate;
 
+    private final Map<NiveauDetail, DocumentCompresse> geoJsonEnCache = new ConcurrentHashMap<>();
+    private final Map<NiveauDetail, DocumentCompresse> topoJsonEnCache = new ConcurrentHashMap<>();
+
+    /**
+     * Niveaux de détail des géométries : tolérance de simplification (degrés),
+     * nombre de décimales des coordonnées GeoJSON et quantification TopoJSON
+     */
+    public enum NiveauDetail {
+        PAYS(0, 0.01, 3, 10_000), // zoom < 7, ~1 km
+        REGION(1, 0.002, 4, 100_000), // zoom 7 à 9, ~200 m
+        LOCAL(2, 0.0005, 5, 1_000_000), // zoom 10 à 12, ~50 m
+        COMPLET(-1, 0, 6, 1_000_000); // zoom >= 13 : géométrie d'origine
+
+        private final int niveau;
+        private final double tolerance;
+        private final int decimales;
+        private final int quantification;
+
+        NiveauDetail(int niveau, double tolerance, int decimales, int quantification) {
+            this.niveau = niveau;
+            this.tolerance = tolerance;
+            this.decimales = decimales;
+            this.quantification = quantification;
+        }
+
+        /**
+         * Niveau adapté à un zoom de carte (géométrie complète si absent)
+         */
+        public static NiveauDetail pourZoom(Integer zoom) {
+            if (zoom == null || zoom >= 13) {
+                return COMPLET;
+            }
+            if (zoom < 7) {
+                return PAYS;
+            }
+            return zoom < 10 ? REGION : LOCAL;
+        }
+
+        /**
+         * Niveau le plus simplifié dont la tolérance ne dépasse pas celle demandée
+         */
+        public static NiveauDetail pourTolerance(double tolerance) {
+            for (NiveauDetail niveau : values()) {
+                if (niveau.tolerance <= tolerance) {
+                    return niveau;
+                }
+            }
+            return COMPLET;
+        }
+    }
+
     /**
      * Récupère toutes les provinces au format GeoJSON
-     * Utilise ST_AsGeoJSON de PostGIS pour convertir les géométries
      * 
      * @return String JSON au format GeoJSON FeatureCollection
      */
-    @Transactional(readOnly = true)
     public String getProvincesAsGeoJSON() {
-        log.info("Génération du GeoJSON pour toutes les provinces");
+        try {
+            return new String(getProvincesGeoJSONCompresse(NiveauDetail.COMPLET).getBrut(), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.error("Erreur lors de la génération du GeoJSON", e);
+            // Retourner un GeoJSON vide en cas d'erreur
+            return "{\"type\":\"FeatureCollection\",\"features\":[]}";
+        }
+    }
+
+    /**
+     * Récupère le GeoJSON des provinces sérialisé, brut et gzippé, avec son ETag
+     * Généré au premier appel puis servi depuis le cache
+     * 
+     * @param niveau Niveau de détail des géométries
+     * @return Document GeoJSON FeatureCollection
+     */
+    public DocumentCompresse getProvincesGeoJSONCompresse(NiveauDetail niveau) {
+        return geoJsonEnCache.computeIfAbsent(niveau, n -> {
+            DocumentCompresse document = DocumentCompresse.of(genererGeoJSON(n).getBytes(StandardCharsets.UTF_8));
+            log.info("GeoJSON des provinces ({}) mis en cache : {} octets ({} gzip), ETag {}",
+                    n, document.getBrut().length, document.getGzip().length, document.getEtag());
+            return document;
+        });
+    }
 
+    /**
+     * Récupère les provinces au format TopoJSON (objet "provinces"), brut et gzippé
+     * Généré au premier appel puis servi depuis le cache
+     * 
+     * @param niveau Niveau de détail (détermine la quantification des coordonnées)
+     * @return Document TopoJSON Topology
+     */
+    public DocumentCompresse getProvincesTopoJSONCompresse(NiveauDetail niveau) {
+        return topoJsonEnCache.computeIfAbsent(niveau, n -> {
+            long debut = System.currentTimeMillis();
+            List<TopoJsonEncoder.Entite> entites = new ArrayList<>();
+            for (Province province : provinceRepository.findAll()) {
+                if (province.getGeometry() != null && !province.getGeometry().isEmpty()) {
+                    entites.add(new TopoJsonEncoder.Entite(
+                            province.getId(), province.getNom(), province.getCode(), province.getGeometry()));
+                }
+            }
+            DocumentCompresse document = DocumentCompresse.of(
+                    TopoJsonEncoder.encoder(entites, n.quantification).getBytes(StandardCharsets.UTF_8));
+            log.info("TopoJSON des provinces ({}) mis en cache : {} octets ({} gzip) en {} ms",
+                    n, document.getBrut().length, document.getGzip().length, System.currentTimeMillis() - debut);
+            return document;
+        });
+    }
+
+    /**
+     * Calcule les géométries simplifiées et découpées au démarrage
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initialiser() {
         try {
-            // Requête SQL qui génère directement un GeoJSON complet
-            String sql = """
-                    SELECT json_build_object(
-                        'type', 'FeatureCollection',
-                        'features', json_agg(
-                            json_build_object(
-                                'type', 'Feature',
-                                'geometry', ST_AsGeoJSON(geometry::geometry)::json,
-                                'properties', json_build_object(
-                                    'id', id,
-                                    'nom', nom,
-                                    'code', code
-                                )
-                            )
-                        )
-                    )::text
-                    FROM provinces
-                    WHERE geometry IS NOT NULL
-                    """;
+            rafraichirSimplifications();
+            rafraichirParties();
+        } catch (Exception e) {
+            log.error("Calcul des géométries dérivées des provinces impossible", e);
+        }
+    }
 
-            String geoJson = jdbcTemplate.queryForObject(sql, String.class);
+    /**
+     * Recalcule les géométries simplifiées et découpées, et vide le cache
+     * du GeoJSON lorsque la table provinces change
+     *
+     * Le cache n'est vidé qu'après le commit : vidé avant, une requête
+     * concurrente relirait les anciennes lignes et les remettrait en cache.
+     * Un remplissage en cours au moment du vidage est retiré avec lui
+     * (clear attend la fin de computeIfAbsent sur la même entrée).
+     */
+    @EventListener
+    @Transactional
+    public void onProvincesModifiees(ProvincesModifieesEvent event) {
+        rafraichirSimplifications();
+        rafraichirParties();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    viderCaches();
+                }
+            });
+        } else {
+            viderCaches();
+        }
+    }
 
-            log.info("GeoJSON généré avec succès");
+    private void viderCaches() {
+        geoJsonEnCache.clear();
+        topoJsonEnCache.clear();
+        log.info("Cache du GeoJSON et du TopoJSON des provinces invalidé");
+    }
 
-            return geoJson != null ? geoJson : "{\"type\":\"FeatureCollection\",\"features\":[]}";
+    /**
+     * Remplit province_simplifications pour chaque niveau de détail simplifié
+     */
+    private void rafraichirSimplifications() {
+        long debut = System.currentTimeMillis();
 
-        } catch (Exception e) {
-            log.error("Erreur lors de la génération du GeoJSON", e);
-            // Retourner un GeoJSON vide en cas d'erreur
-            return "{\"type\":\"FeatureCollection\",\"features\":[]}";
+        jdbcTemplate.update("DELETE FROM province_simplifications");
+        int lignes = 0;
+        for (NiveauDetail niveau : NiveauDetail.values()) {
+            if (niveau == NiveauDetail.COMPLET) {
+                continue;
+            }
+            lignes += jdbcTemplate.update("""
+                    INSERT INTO province_simplifications (province_id, niveau, geometry)
+                    SELECT p.id, ?, ST_Multi(ST_SimplifyPreserveTopology(p.geometry::geometry, ?))
+                    FROM provinces p
+                    WHERE p.geometry IS NOT NULL
+                    """, niveau.niveau, niveau.tolerance);
         }
+
+        log.info("Géométries simplifiées des provinces calculées : {} ligne(s) en {} ms",
+                lignes, System.currentTimeMillis() - debut);
+    }
+
+    /**
+     * Remplit province_parts avec les provinces découpées par ST_Subdivide
+     */
+    private void rafraichirParties() {
+        long debut = System.currentTimeMillis();
+
+        jdbcTemplate.update("DELETE FROM province_parts");
+        int parties = jdbcTemplate.update("""
+                INSERT INTO province_parts (province_id, geometry)
+                SELECT p.id, ST_Subdivide(p.geometry::geometry, ?)
+                FROM provinces p
+                WHERE p.geometry IS NOT NULL
+                """, SOMMETS_MAX_PAR_PARTIE);
+        jdbcTemplate.execute("ANALYZE province_parts");
+
+        log.info("Provinces découpées : {} partie(s) en {} ms", parties, System.currentTimeMillis() - debut);
+    }
+
+    /**
+     * Génère le GeoJSON de toutes les provinces à un niveau de détail
+     * Utilise ST_AsGeoJSON de PostGIS pour convertir les géométries,
+     * avec un nombre de décimales limité selon le niveau
+     */
+    private String genererGeoJSON(NiveauDetail niveau) {
+        log.info("Génération du GeoJSON pour toutes les provinces ({})", niveau);
+
+        // Géométrie d'origine ou variante simplifiée précalculée
+        String source = niveau == NiveauDetail.COMPLET
+                ? "SELECT id, nom, code, geometry::geometry AS geom FROM provinces WHERE geometry IS NOT NULL"
+                : "SELECT p.id, p.nom, p.code, s.geometry AS geom FROM provinces p"
+                        + " JOIN province_simplifications s ON s.province_id = p.id AND s.niveau = "
+                        + niveau.niveau;
+
+        // Requête SQL qui génère directement un GeoJSON complet
+        String sql = """
+                SELECT json_build_object(
+                    'type', 'FeatureCollection',
+                    'features', json_agg(
+                        json_build_object(
+                            'type', 'Feature',
+                            'geometry', ST_AsGeoJSON(geom, %d)::json,
+                            'properties', json_build_object(
+                                'id', id,
+                                'nom', nom,
+                                'code', code
+                            )
+                        )
+                    )
+                )::text
+                FROM (%s) provinces
+                """.formatted(niveau.decimales, source);
+
+        String geoJson = jdbcTemplate.queryForObject(sql, String.class);
+
+        log.info("GeoJSON généré avec succès");
+
+        return geoJson != null ? geoJson : "{\"type\":\"FeatureCollection\",\"features\":[]}";
     }
 
     /**
@@ -0,0 +1,62 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.event.ProvincesModifieesEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+
+/**
+ * Surveillance de la table provinces
+ *
+ * Les provinces sont chargées par scripts SQL, hors de l'application : une
+ * empreinte (md5 des identifiants, noms, codes et géométries) est recalculée
+ * périodiquement et un ProvincesModifieesEvent est publié lorsqu'elle change.
+ * La première vérification ne publie rien : chaque consommateur se charge
+ * lui-même au démarrage.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProvinceWatcher {
+
+    private static final String SQL_EMPREINTE = """
+            SELECT md5(COALESCE(string_agg(
+                       p.id || '|' || p.nom || '|' || COALESCE(p.code, '') || '|'
+                           || COALESCE(md5(ST_AsEWKB(p.geometry)), ''),
+                       ',' ORDER BY p.id), ''))
+            FROM provinces p
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile String empreinte;
+
+    /**
+     * Compare l'empreinte de la table à la précédente
+     */
+    @Scheduled(fixedDelayString = "${provinces.verification-ms:60000}")
+    public void verifier() {
+        String nouvelle = jdbcTemplate.queryForObject(SQL_EMPREINTE, String.class);
+        String ancienne = this.empreinte;
+        this.empreinte = nouvelle;
+
+        if (ancienne != null && !Objects.equals(ancienne, nouvelle)) {
+            log.info("Table provinces modifiée (empreinte {}), reconstruction des données dérivées", nouvelle);
+            eventPublisher.publishEvent(new ProvincesModifieesEvent(nouvelle));
+        }
+    }
+
+    /**
+     * Signale immédiatement une modification (après un chargement par l'application)
+     */
+    public void signalerModification() {
+        this.empreinte = jdbcTemplate.queryForObject(SQL_EMPREINTE, String.class);
+        eventPublisher.publishEvent(new ProvincesModifieesEvent(this.empreinte));
+    }
+}
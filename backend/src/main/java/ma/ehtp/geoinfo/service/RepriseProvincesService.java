@@ -0,0 +1,272 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.dto.response.RepriseProvincesResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reprise des provinces des incidents (déclenchée par un administrateur)
+ *
+ * Les incidents déclarés alors que les géométries manquaient portent une
+ * province approximée ("Maroc" ou un nom absent de la table provinces).
+ * Le job les parcourt par lots ordonnés par identifiant (pagination par clé),
+ * résout les provinces en parallèle dans un ForkJoinPool borné via l'index
+ * en mémoire (ProvinceResolver), puis écrit chaque lot par UPDATE groupés
+ * dans une transaction courte, avec l'avancement (table progressions_reprise).
+ *
+ * Un job arrêté (ou interrompu par un redémarrage) reprend après le dernier
+ * identifiant enregistré.
+ */
+@Service
+@Slf4j
+public class RepriseProvincesService {
+
+    private static final String NOM_JOB = "reprise_provinces";
+
+    private static final String FILTRE_APPROXIMEES = """
+            (i.province = 'Maroc' OR NOT EXISTS (SELECT 1 FROM provinces p WHERE p.nom = i.province))
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProvinceResolver provinceResolver;
+    private final StatistiquesEngine statistiquesEngine;
+    private final TaskExecutor executor;
+    private final int tailleLot;
+    private final int parallelisme;
+
+    private final AtomicBoolean enCours = new AtomicBoolean(false);
+    private volatile boolean arretDemande = false;
+    private volatile Avancement avancement;
+
+    public RepriseProvincesService(JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            ProvinceResolver provinceResolver,
+            StatistiquesEngine statistiquesEngine,
+            @Qualifier("repriseExecutor") TaskExecutor executor,
+            @Value("${reprise.taille-lot:1000}") int tailleLot,
+            @Value("${reprise.parallelisme:4}") int parallelisme) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.provinceResolver = provinceResolver;
+        this.statistiquesEngine = statistiquesEngine;
+        this.executor = executor;
+        this.tailleLot = tailleLot;
+        this.parallelisme = parallelisme;
+    }
+
+    /**
+     * Démarre (ou reprend) le job en arrière-plan
+     *
+     * @param tous      true : tous les incidents ; false : provinces approximées seulement
+     * @param reprendre true : repartir du dernier identifiant d'un job non terminé
+     * @return Avancement initial
+     */
+    public RepriseProvincesResponse demarrer(boolean tous, boolean reprendre) {
+        if (!provinceResolver.isDisponible()) {
+            throw new IllegalStateException("Géométries des provinces non chargées : reprise impossible");
+        }
+        if (!enCours.compareAndSet(false, true)) {
+            throw new IllegalStateException("Une reprise des provinces est déjà en cours");
+        }
+
+        try {
+            Avancement depart = new Avancement(tous);
+            if (reprendre) {
+                List<Map<String, Object>> lignes = jdbcTemplate.queryForList(
+                        "SELECT * FROM progressions_reprise WHERE nom = ? AND statut <> 'TERMINE' AND tous = ?",
+                        NOM_JOB, tous);
+                if (!lignes.isEmpty()) {
+                    Map<String, Object> ligne = lignes.get(0);
+                    depart.dernierId = ((Number) ligne.get("dernier_id")).longValue();
+                    depart.traites = ((Number) ligne.get("traites")).longValue();
+                    depart.corriges = ((Number) ligne.get("corriges")).longValue();
+                    log.info("Reprise des provinces : reprise après l'incident {}", depart.dernierId);
+                }
+            }
+            depart.aTraiter = depart.traites + jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM incidents i WHERE i.id > ?" + (tous ? "" : " AND " + FILTRE_APPROXIMEES),
+                    Long.class, depart.dernierId);
+
+            depart.traitesAuDebut = depart.traites;
+            arretDemande = false;
+            avancement = depart;
+            executor.execute(() -> executer(depart));
+            return getAvancement();
+        } catch (RuntimeException e) {
+            enCours.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Demande l'arrêt du job à la fin du lot courant
+     */
+    public void arreter() {
+        if (enCours.get()) {
+            arretDemande = true;
+            log.info("Reprise des provinces : arrêt demandé");
+        }
+    }
+
+    private void executer(Avancement a) {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelisme));
+        String sql = "SELECT i.id, i.latitude, i.longitude, i.province FROM incidents i WHERE i.id > ?"
+                + (a.tous ? "" : " AND " + FILTRE_APPROXIMEES)
+                + " ORDER BY i.id LIMIT ?";
+        try {
+            log.info("Reprise des provinces démarrée ({} incident(s) à traiter, lots de {}, {} thread(s))",
+                    a.aTraiter - a.traites, tailleLot, pool.getParallelism());
+            enregistrer(a, "EN_COURS");
+
+            while (!arretDemande) {
+                List<Object[]> lot = jdbcTemplate.query(sql, (rs, i) -> new Object[] {
+                        rs.getLong(1), rs.getDouble(2), rs.getDouble(3), rs.getString(4) },
+                        a.dernierId, tailleLot);
+                if (lot.isEmpty()) {
+                    break;
+                }
+
+                // Résolution parallèle, bornée au pool du job
+                List<String> provinces = pool.submit(() -> lot.parallelStream()
+                        .map(l -> provinceResolver.resoudre((Double) l[1], (Double) l[2]).orElse(null))
+                        .toList()).get();
+
+                List<Object[]> modifications = new ArrayList<>();
+                int nonResolus = 0;
+                for (int k = 0; k < lot.size(); k++) {
+                    String nouvelle = provinces.get(k);
+                    Object[] ligne = lot.get(k);
+                    if (nouvelle == null) {
+                        nonResolus++;
+                    } else if (!nouvelle.equals(ligne[3])) {
+                        modifications.add(new Object[] { nouvelle, ligne[0], ligne[3] });
+                    }
+                }
+
+                long dernierId = (Long) lot.get(lot.size() - 1)[0];
+                transactionTemplate.executeWithoutResult(status -> {
+                    // date_modification : la synchronisation carte et les rollups reprennent ces incidents
+                    jdbcTemplate.batchUpdate("UPDATE incidents SET province = ?, date_modification = now()"
+                            + " WHERE id = ? AND province IS NOT DISTINCT FROM ?", modifications);
+                    a.dernierId = dernierId;
+                    a.traites += lot.size();
+                    a.corriges += modifications.size();
+                    enregistrer(a, "EN_COURS");
+                });
+                a.nonResolus += nonResolus;
+
+                log.debug("Reprise des provinces : {}/{} traité(s), {} corrigé(s), {} /s",
+                        a.traites, a.aTraiter, a.corriges, Math.round(a.debit()));
+            }
+
+            a.statut = arretDemande ? "ARRETE" : "TERMINE";
+            enregistrer(a, a.statut);
+            log.info("Reprise des provinces {} : {} traité(s), {} corrigé(s), {} non résolu(s) en {} s ({} /s)",
+                    a.statut.toLowerCase(), a.traites, a.corriges, a.nonResolus,
+                    Duration.between(a.debut, LocalDateTime.now()).toSeconds(), Math.round(a.debit()));
+
+            if (a.corriges > 0) {
+                statistiquesEngine.reconcilier();
+            }
+        } catch (Exception e) {
+            log.error("Reprise des provinces en échec après l'incident {}", a.dernierId, e);
+            a.statut = "ECHEC";
+            a.erreur = e.getMessage();
+            try {
+                enregistrer(a, "ECHEC");
+            } catch (Exception ignored) {
+                // L'avancement du dernier lot validé est déjà enregistré
+            }
+        } finally {
+            pool.shutdown();
+            enCours.set(false);
+        }
+    }
+
+    private void enregistrer(Avancement a, String statut) {
+        a.statut = statut;
+        a.dateMiseAJour = LocalDateTime.now();
+        jdbcTemplate.update("""
+                INSERT INTO progressions_reprise (nom, dernier_id, traites, corriges, statut, tous, date_debut, date_mise_a_jour)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT (nom) DO UPDATE SET
+                    dernier_id = EXCLUDED.dernier_id,
+                    traites = EXCLUDED.traites,
+                    corriges = EXCLUDED.corriges,
+                    statut = EXCLUDED.statut,
+                    tous = EXCLUDED.tous,
+                    date_debut = EXCLUDED.date_debut,
+                    date_mise_a_jour = EXCLUDED.date_mise_a_jour
+                """, NOM_JOB, a.dernierId, a.traites, a.corriges, statut, a.tous,
+                Timestamp.valueOf(a.debut), Timestamp.valueOf(a.dateMiseAJour));
+    }
+
+    /**
+     * Avancement du job en cours ou du dernier job exécuté
+     */
+    public RepriseProvincesResponse getAvancement() {
+        Avancement a = this.avancement;
+        if (a == null) {
+            return RepriseProvincesResponse.builder().statut("AUCUNE").build();
+        }
+        return RepriseProvincesResponse.builder()
+                .statut(a.statut)
+                .tous(a.tous)
+                .aTraiter(a.aTraiter)
+                .traites(a.traites)
+                .corriges(a.corriges)
+                .nonResolus(a.nonResolus)
+                .dernierId(a.dernierId)
+                .debitParSeconde(Math.round(a.debit() * 10) / 10.0)
+                .pourcentage(a.aTraiter > 0 ? Math.round(a.traites * 1000.0 / a.aTraiter) / 10.0 : null)
+                .dateDebut(a.debut)
+                .dateMiseAJour(a.dateMiseAJour)
+                .erreur(a.erreur)
+                .build();
+    }
+
+    /**
+     * Avancement en mémoire (écrit par le thread du job, lu par les requêtes)
+     */
+    private static class Avancement {
+
+        private final boolean tous;
+        private final LocalDateTime debut = LocalDateTime.now();
+        private long traitesAuDebut;
+        private volatile String statut = "EN_COURS";
+        private volatile long aTraiter;
+        private volatile long traites;
+        private volatile long corriges;
+        private volatile long nonResolus;
+        private volatile long dernierId;
+        private volatile LocalDateTime dateMiseAJour = debut;
+        private volatile String erreur;
+
+        Avancement(boolean tous) {
+            this.tous = tous;
+        }
+
+        /**
+         * Incidents traités par seconde depuis le démarrage de cette exécution
+         */
+        double debit() {
+            double secondes = Duration.between(debut, LocalDateTime.now()).toMillis() / 1000.0;
+            return secondes > 0 ? (traites - traitesAuDebut) / secondes : 0;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.dto.response.SerieTemporelleResponse;
+import ma.ehtp.geoinfo.entity.IncidentRollup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service des tables de rollup (compteurs horaires et journaliers)
+ *
+ * Un job planifié ne traite que les incidents dont la dateModification est
+ * postérieure au dernier watermark : les buckets touchés sont supprimés puis
+ * recalculés en SQL, ce qui rend l'opération idempotente.
+ * Les séries temporelles des dashboards lisent uniquement ces tables.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RollupService {
+
+    private static final String WATERMARK = "incident_rollups";
+
+    // Rejoue une petite fenêtre pour couvrir les transactions validées en retard
+    private static final Duration CHEVAUCHEMENT = Duration.ofMinutes(2);
+
+    // Au-delà, une série horaire dépasserait quelques milliers de lignes
+    private static final Duration MAX_PLAGE_HORAIRE = Duration.ofDays(31);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Met à jour les rollups avec les incidents modifiés depuis le dernier passage
+     */
+    @Scheduled(fixedDelayString = "${rollup.intervalle-ms:60000}")
+    @Transactional
+    public void rafraichir() {
+        LocalDateTime fin = jdbcTemplate.queryForObject(
+                "SELECT MAX(COALESCE(date_modification, date_declaration)) FROM incidents",
+                LocalDateTime.class);
+        if (fin == null) {
+            return;
+        }
+
+        List<LocalDateTime> watermarks = jdbcTemplate.queryForList(
+                "SELECT valeur FROM rollup_watermarks WHERE nom = ?", LocalDateTime.class, WATERMARK);
+        LocalDateTime watermark = watermarks.isEmpty() ? null : watermarks.get(0);
+        if (watermark != null && !fin.isAfter(watermark)) {
+            return;
+        }
+
+        LocalDateTime debut = watermark != null ? watermark.minus(CHEVAUCHEMENT) : LocalDateTime.of(1970, 1, 1, 0, 0);
+        long depart = System.currentTimeMillis();
+
+        int lignes = 0;
+        for (IncidentRollup.Granularite granularite : IncidentRollup.Granularite.values()) {
+            lignes += recalculerBuckets(granularite, debut, fin);
+        }
+
+        jdbcTemplate.update("""
+                INSERT INTO rollup_watermarks (nom, valeur) VALUES (?, ?)
+                ON CONFLICT (nom) DO UPDATE SET valeur = EXCLUDED.valeur
+                """, WATERMARK, Timestamp.valueOf(fin));
+
+        log.info("Rollups mis à jour jusqu'à {} : {} ligne(s) en {} ms",
+                fin, lignes, System.currentTimeMillis() - depart);
+    }
+
+    /**
+     * Supprime puis recalcule les buckets contenant un incident modifié dans ]debut, fin]
+     *
+     * @return Nombre de lignes de rollup écrites
+     */
+    private int recalculerBuckets(IncidentRollup.Granularite granularite, LocalDateTime debut, LocalDateTime fin) {
+        // L'unité provient de l'enum, jamais de la requête HTTP
+        String unite = granularite.getUniteSql();
+        String bucketsTouches = """
+                SELECT DISTINCT date_trunc('%s', m.date_declaration) FROM incidents m
+                WHERE COALESCE(m.date_modification, m.date_declaration) > ?
+                  AND COALESCE(m.date_modification, m.date_declaration) <= ?
+                """.formatted(unite);
+
+        jdbcTemplate.update(
+                "DELETE FROM incident_rollups WHERE granularite = ? AND bucket IN (" + bucketsTouches + ")",
+                granularite.name(), Timestamp.valueOf(debut), Timestamp.valueOf(fin));
+
+        // Jointure par plage sur date_declaration pour profiter de idx_incident_date
+        return jdbcTemplate.update("""
+                WITH touches (b) AS (%s)
+                INSERT INTO incident_rollups (granularite, bucket, province, secteur_id, type_incident, statut, nombre)
+                SELECT ?, t.b, i.province, i.secteur_id, i.type_incident, i.statut, COUNT(*)
+                FROM touches t
+                JOIN incidents i ON i.date_declaration >= t.b AND i.date_declaration < t.b + INTERVAL '1 %s'
+                GROUP BY t.b, i.province, i.secteur_id, i.type_incident, i.statut
+                """.formatted(bucketsTouches, unite),
+                Timestamp.valueOf(debut), Timestamp.valueOf(fin), granularite.name());
+    }
+
+    /**
+     * Construit une série temporelle à partir des rollups
+     *
+     * @param from         Début inclus
+     * @param to           Fin exclue
+     * @param granularite  hour, day, week ou month
+     * @param province     Province (optionnel)
+     * @param secteurId    Secteur (optionnel)
+     * @param typeIncident Type (optionnel)
+     * @return Série temporelle triée par bucket
+     */
+    @Transactional(readOnly = true)
+    public SerieTemporelleResponse getSerieTemporelle(LocalDateTime from, LocalDateTime to, String granularite,
+            String province, Long secteurId, String typeIncident) {
+
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("La date de début doit précéder la date de fin");
+        }
+
+        String unite;
+        IncidentRollup.Granularite source;
+        switch (granularite) {
+            case "hour" -> {
+                if (Duration.between(from, to).compareTo(MAX_PLAGE_HORAIRE) > 0) {
+                    throw new IllegalArgumentException("La granularité horaire est limitée à 31 jours");
+                }
+                unite = "hour";
+                source = IncidentRollup.Granularite.HEURE;
+            }
+            case "day", "week", "month" -> {
+                unite = granularite;
+                source = IncidentRollup.Granularite.JOUR;
+            }
+            default -> throw new IllegalArgumentException(
+                    "Granularité invalide: " + granularite + ". Valeurs acceptées: hour, day, week, month");
+        }
+
+        StringBuilder sql = new StringBuilder("""
+                SELECT date_trunc('%s', r.bucket) AS b, r.statut, SUM(r.nombre)
+                FROM incident_rollups r
+                WHERE r.granularite = ? AND r.bucket >= ? AND r.bucket < ?
+                """.formatted(unite));
+        List<Object> params = new ArrayList<>(List.of(source.name(), Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        if (province != null) {
+            sql.append(" AND r.province = ?");
+            params.add(province);
+        }
+        if (secteurId != null) {
+            sql.append(" AND r.secteur_id = ?");
+            params.add(secteurId);
+        }
+        if (typeIncident != null) {
+            sql.append(" AND r.type_incident = ?");
+            params.add(typeIncident);
+        }
+        sql.append(" GROUP BY 1, 2 ORDER BY 1");
+
+        Map<LocalDateTime, SerieTemporelleResponse.PointDTO> points = new LinkedHashMap<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            LocalDateTime bucket = rs.getTimestamp(1).toLocalDateTime();
+            long nombre = rs.getLong(3);
+            SerieTemporelleResponse.PointDTO point = points.computeIfAbsent(bucket,
+                    b -> SerieTemporelleResponse.PointDTO.builder()
+                            .bucket(b)
+                            .total(0L)
+                            .parStatut(new HashMap<>())
+                            .build());
+            point.setTotal(point.getTotal() + nombre);
+            point.getParStatut().put(rs.getString(2), nombre);
+        }, params.toArray());
+
+        return SerieTemporelleResponse.builder()
+                .granularite(granularite)
+                .from(from)
+                .to(to)
+                .points(new ArrayList<>(points.values()))
+                .build();
+    }
+}
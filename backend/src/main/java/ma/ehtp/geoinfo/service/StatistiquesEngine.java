@@ -0,0 +1,229 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.entity.Incident;
+import ma.ehtp.geoinfo.event.IncidentStatutChangeEvent;
+import ma.ehtp.geoinfo.repository.IncidentRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moteur de statistiques maintenu en mémoire
+ *
+ * Initialisé au démarrage par la requête GROUPING SETS, puis mis à jour
+ * à chaque changement de statut (IncidentStatutChangeEvent) après commit.
+ * Une réconciliation périodique avec la base corrige toute dérive
+ * (événements perdus ou comptés deux fois, modifications SQL directes).
+ *
+ * Les compteurs par secteur/province/type ne portent que sur les incidents
+ * publics (hors REDIGE et BLOQUE), les compteurs par statut sur tous.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StatistiquesEngine {
+
+    private final IncidentRepository incidentRepository;
+
+    private volatile Compteurs compteurs = new Compteurs();
+    private volatile boolean initialise = false;
+
+    /**
+     * Initialise les compteurs une fois l'application démarrée
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        try {
+            reconcilier();
+        } catch (Exception e) {
+            log.error("Initialisation du moteur de statistiques impossible, nouvel essai au prochain appel", e);
+        }
+    }
+
+    /**
+     * Recalcule les compteurs depuis la base et remplace l'état courant
+     *
+     * Les événements sont délivrés après le commit, sans ordre garanti par
+     * rapport à l'instantané lu par aggregateStatistiques. Deux dérives, dans
+     * les deux sens, sont donc possibles jusqu'à la réconciliation suivante :
+     * - perte : transaction validée après l'instantané, mais événement délivré
+     *   avant le remplacement des compteurs (appliqué aux anciens) ;
+     * - double comptage : transaction validée avant l'instantané (déjà comptée),
+     *   mais événement délivré après le remplacement (appliqué une seconde fois).
+     * La fenêtre est la durée du recalcul ; la dérive est bornée par le nombre
+     * de changements de statut dans cette fenêtre.
+     */
+    @Scheduled(fixedDelayString = "${statistiques.reconciliation-ms:600000}",
+            initialDelayString = "${statistiques.reconciliation-ms:600000}")
+    public void reconcilier() {
+        long debut = System.currentTimeMillis();
+
+        Compteurs nouveaux = new Compteurs();
+        List<Object[]> lignes = incidentRepository.aggregateStatistiques(LocalDateTime.now().minusDays(30));
+        for (Object[] ligne : lignes) {
+            nouveaux.charger(
+                    (String) ligne[0],
+                    (String) ligne[1],
+                    ((Number) ligne[2]).longValue(),
+                    ((Number) ligne[3]).longValue());
+        }
+
+        Compteurs anciens = this.compteurs;
+        this.compteurs = nouveaux;
+        this.initialise = true;
+
+        if (anciens.total() != nouveaux.total()) {
+            log.warn("Statistiques réconciliées : dérive de {} incident(s) corrigée",
+                    nouveaux.total() - anciens.total());
+        }
+        log.info("Statistiques réconciliées : {} agrégats, {} incidents en {} ms",
+                lignes.size(), nouveaux.total(), System.currentTimeMillis() - debut);
+    }
+
+    /**
+     * Applique un changement de statut une fois la transaction validée
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatutChange(IncidentStatutChangeEvent event) {
+        Compteurs courant = this.compteurs;
+        if (event.getAncienStatut() != null) {
+            courant.ajouter(event.getAncienStatut(), event.getSecteurNom(), event.getProvince(),
+                    event.getTypeIncident(), -1);
+        }
+        courant.ajouter(event.getNouveauStatut(), event.getSecteurNom(), event.getProvince(),
+                event.getTypeIncident(), 1);
+    }
+
+    /**
+     * Nombre d'incidents pour un statut donné (tous incidents confondus)
+     */
+    public long countByStatut(Incident.StatutIncident statut) {
+        assurerInitialisation();
+        return compteurs.parStatut.get(statut).sum();
+    }
+
+    /**
+     * Statistiques globales des incidents PUBLICS (hors REDIGE et BLOQUE)
+     * Même format que l'ancien calcul de IncidentService.getStatistics()
+     *
+     * @return Map de statistiques
+     */
+    public Map<String, Object> getStatistics() {
+        assurerInitialisation();
+        Compteurs c = this.compteurs;
+
+        long total = c.totalPublic();
+        long traite = c.parStatut.get(Incident.StatutIncident.TRAITE).sum();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("total", total);
+        stats.put("valide", c.parStatut.get(Incident.StatutIncident.VALIDE).sum());
+        stats.put("prisEnCompte", c.parStatut.get(Incident.StatutIncident.PRIS_EN_COMPTE).sum());
+        stats.put("enCours", c.parStatut.get(Incident.StatutIncident.EN_COURS_DE_TRAITEMENT).sum());
+        stats.put("traite", traite);
+        stats.put("rejete", c.parStatut.get(Incident.StatutIncident.REJETE).sum());
+        stats.put("redirige", c.parStatut.get(Incident.StatutIncident.REDIRIGE).sum());
+        stats.put("parSecteur", snapshot(c.parSecteur));
+        stats.put("parProvince", snapshot(c.parProvince));
+        stats.put("parType", snapshot(c.parType));
+
+        double tauxResolution = total > 0 ? (double) traite / total * 100 : 0;
+        stats.put("tauxResolution", Math.round(tauxResolution * 100.0) / 100.0);
+
+        return stats;
+    }
+
+    private void assurerInitialisation() {
+        if (!initialise) {
+            synchronized (this) {
+                if (!initialise) {
+                    reconcilier();
+                }
+            }
+        }
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> source) {
+        Map<String, Long> result = new HashMap<>();
+        source.forEach((cle, compteur) -> {
+            long valeur = compteur.sum();
+            if (valeur > 0) {
+                result.put(cle, valeur);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Ensemble de compteurs remplacé en bloc à chaque réconciliation
+     */
+    private static class Compteurs {
+
+        private final Map<Incident.StatutIncident, LongAdder> parStatut = new EnumMap<>(Incident.StatutIncident.class);
+        private final Map<String, LongAdder> parSecteur = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> parProvince = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> parType = new ConcurrentHashMap<>();
+
+        Compteurs() {
+            for (Incident.StatutIncident statut : Incident.StatutIncident.values()) {
+                parStatut.put(statut, new LongAdder());
+            }
+        }
+
+        void ajouter(Incident.StatutIncident statut, String secteur, String province, String type, long delta) {
+            parStatut.get(statut).add(delta);
+
+            if (!IncidentStatutChangeEvent.isPublic(statut)) {
+                return;
+            }
+            if (secteur != null) {
+                parSecteur.computeIfAbsent(secteur, k -> new LongAdder()).add(delta);
+            }
+            if (province != null) {
+                parProvince.computeIfAbsent(province, k -> new LongAdder()).add(delta);
+            }
+            if (type != null) {
+                parType.computeIfAbsent(type, k -> new LongAdder()).add(delta);
+            }
+        }
+
+        /**
+         * Charge une ligne de IncidentRepository.aggregateStatistiques()
+         */
+        void charger(String dimension, String cle, long nombre, long nombrePublic) {
+            if (cle == null) {
+                return;
+            }
+            switch (dimension) {
+                case "STATUT" -> parStatut.get(Incident.StatutIncident.valueOf(cle)).add(nombre);
+                case "SECTEUR" -> parSecteur.computeIfAbsent(cle, k -> new LongAdder()).add(nombrePublic);
+                case "PROVINCE" -> parProvince.computeIfAbsent(cle, k -> new LongAdder()).add(nombrePublic);
+                case "TYPE" -> parType.computeIfAbsent(cle, k -> new LongAdder()).add(nombrePublic);
+                default -> log.warn("Dimension de statistiques inconnue : {}", dimension);
+            }
+        }
+
+        long total() {
+            return parStatut.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        long totalPublic() {
+            return parStatut.entrySet().stream()
+                    .filter(e -> IncidentStatutChangeEvent.isPublic(e.getKey()))
+                    .mapToLong(e -> e.getValue().sum())
+                    .sum();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ma.ehtp.geoinfo.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.ehtp.geoinfo.event.IncidentStatutChangeEvent;
+import ma.ehtp.geoinfo.event.ProvincesModifieesEvent;
+import ma.ehtp.geoinfo.geo.TileMath;
+import ma.ehtp.geoinfo.util.DocumentCompresse;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Génération des tuiles vectorielles (Mapbox Vector Tile) via PostGIS
+ *
+ * Couches disponibles :
+ * - incidents : incidents VALIDE de la carte publique (statut, secteur,
+ *   type, province)
+ * - provinces : polygones des provinces (nom, code)
+ *
+ * Les tuiles sont produites par ST_AsMVT / ST_AsMVTGeom et mises en cache
+ * brutes et compressées en gzip, avec leur ETag (DocumentCompresse).
+ * Un changement de statut n'invalide que les tuiles "incidents" contenant
+ * l'incident.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VectorTileService {
+
+    public static final String COUCHE_INCIDENTS = "incidents";
+    public static final String COUCHE_PROVINCES = "provinces";
+
+    private static final int ZOOM_MAX = 22;
+    private static final int EXTENT = 4096;
+    private static final int BUFFER = 64;
+    private static final int MAX_TUILES_EN_CACHE = 10000;
+
+    private static final String SQL_INCIDENTS = """
+            WITH bounds AS (
+                SELECT ST_TileEnvelope(?, ?, ?) AS geom
+            )
+            SELECT ST_AsMVT(mvt, 'incidents', %d, 'geom', 'id')
+            FROM (
+                SELECT i.id,
+                       i.statut,
+                       s.nom AS secteur,
+                       i.type_incident AS type,
+                       i.province,
+                       ST_AsMVTGeom(ST_Transform(i.location, 3857), bounds.geom, %d, %d, true) AS geom
+                FROM incidents i
+                JOIN secteurs s ON s.id = i.secteur_id
+                CROSS JOIN bounds
+                WHERE i.statut = 'VALIDE'
+                  AND i.location && ST_Transform(bounds.geom, 4326)
+            ) mvt
+            WHERE mvt.geom IS NOT NULL
+            """.formatted(EXTENT, EXTENT, BUFFER);
+
+    private static final String SQL_PROVINCES = """
+            WITH bounds AS (
+                SELECT ST_TileEnvelope(?, ?, ?) AS geom
+            )
+            SELECT ST_AsMVT(mvt, 'provinces', %d, 'geom', 'id')
+            FROM (
+                SELECT p.id,
+                       p.nom,
+                       p.code,
+                       ST_AsMVTGeom(ST_Transform(p.geometry, 3857), bounds.geom, %d, %d, true) AS geom
+                FROM provinces p
+                CROSS JOIN bounds
+                WHERE p.geometry IS NOT NULL
+                  AND p.geometry && ST_Transform(bounds.geom, 4326)
+            ) mvt
+            WHERE mvt.geom IS NOT NULL
+            """.formatted(EXTENT, EXTENT, BUFFER);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, DocumentCompresse> cacheIncidents = new ConcurrentHashMap<>();
+    private final Map<Long, DocumentCompresse> cacheProvinces = new ConcurrentHashMap<>();
+
+    /**
+     * Incrémentées par chaque invalidation de la couche : une tuile calculée
+     * pendant une invalidation n'est pas mise en cache
+     */
+    private final AtomicLong generationIncidents = new AtomicLong();
+    private final AtomicLong generationProvinces = new AtomicLong();
+
+    /**
+     * Récupère une tuile vectorielle compressée
+     *
+     * @param couche incidents ou provinces
+     * @param z      Niveau de zoom
+     * @param x      Colonne de la tuile
+     * @param y      Ligne de la tuile
+     * @return Tuile MVT (brute et gzippée) et son ETag
+     */
+    public DocumentCompresse getTuile(String couche, int z, int x, int y) {
+        TileMath.valider(z, x, y);
+        if (z > ZOOM_MAX) {
+            throw new IllegalArgumentException("Zoom maximum des tuiles vectorielles : " + ZOOM_MAX);
+        }
+
+        Map<Long, DocumentCompresse> cache;
+        AtomicLong generation;
+        String sql;
+        switch (couche) {
+            case COUCHE_INCIDENTS -> {
+                cache = cacheIncidents;
+                generation = generationIncidents;
+                sql = SQL_INCIDENTS;
+            }
+            case COUCHE_PROVINCES -> {
+                cache = cacheProvinces;
+                generation = generationProvinces;
+                sql = SQL_PROVINCES;
+            }
+            default -> throw new IllegalArgumentException("Couche inconnue : " + couche);
+        }
+
+        long cle = TileMath.cle(z, x, y);
+        DocumentCompresse tuile = cache.get(cle);
+        if (tuile != null) {
+            return tuile;
+        }
+
+        long debut = System.currentTimeMillis();
+        long generationDebut = generation.get();
+        byte[] mvt = jdbcTemplate.queryForObject(sql, byte[].class, z, x, y);
+        tuile = DocumentCompresse.of(mvt != null ? mvt : new byte[0]);
+
+        if (cache.size() >= MAX_TUILES_EN_CACHE) {
+            cache.clear();
+        }
+        DocumentCompresse calculee = tuile;
+        // Atomique vis-à-vis du remove du listener sur la même clé
+        cache.compute(cle, (k, ancienne) -> generation.get() == generationDebut ? calculee : ancienne);
+
+        log.debug("Tuile {}/{}/{}/{} générée : {} octets ({} gzip) en {} ms",
+                couche, z, x, y, mvt != null ? mvt.length : 0, tuile.getGzip().length,
+                System.currentTimeMillis() - debut);
+        return tuile;
+    }
+
+    /**
+     * Vide le cache des tuiles de provinces lorsque la table provinces change
+     */
+    @EventListener(ProvincesModifieesEvent.class)
+    public void invaliderProvinces() {
+        generationProvinces.incrementAndGet();
+        cacheProvinces.clear();
+        log.info("Cache des tuiles de provinces vidé");
+    }
+
+    /**
+     * Invalide les tuiles "incidents" contenant l'incident, à chaque niveau de zoom,
+     * lorsqu'il apparaît sur la carte ou la quitte
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(IncidentPointIndex.ORDRE_LISTENER + 10)
+    public void onStatutChange(IncidentStatutChangeEvent event) {
+        if (!event.isVisibiliteCarteModifiee() || event.getLatitude() == null || event.getLongitude() == null) {
+            return;
+        }
+        generationIncidents.incrementAndGet();
+        for (int z = 0; z <= ZOOM_MAX; z++) {
+            cacheIncidents.remove(TileMath.cle(z,
+                    TileMath.tuileX(event.getLongitude(), z),
+                    TileMath.tuileY(event.getLatitude(), z)));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ma.ehtp.geoinfo.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Stockage des photos sur le disque local, partitionné par préfixe
+ *
+ * Un nom commençant par 4 caractères hexadécimaux (empreinte SHA-256, UUID)
+ * est rangé sous <racine>/ab/cd/<nom> : 65 536 répertoires répartis
+ * uniformément au lieu d'un répertoire plat de plusieurs millions d'entrées.
+ * Les fichiers antérieurs, à la racine, restent lisibles et supprimables.
+ *
+ * Plusieurs nœuds peuvent partager ce stockage via un volume réseau monté
+ * sur file.upload-dir.
+ *
+ * Les fichiers sont servis par FileController sous /uploads/ (URLs relatives
+ * par défaut, résolues par le client sur l'origine du backend).
+ */
+@Component
+@ConditionalOnProperty(name = "photos.stockage", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class LocalPhotoStorage implements PhotoStorage {
+
+    private static final Pattern PREFIXE_HEXA = Pattern.compile("^[0-9a-f]{4}");
+
+    private final Path racine;
+    private final String urlBase;
+
+    public LocalPhotoStorage(@Value("${file.upload-dir}") String uploadDir,
+            @Value("${photos.url-base:/uploads/}") String urlBase) {
+        this.racine = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.urlBase = urlBase.endsWith("/") ? urlBase : urlBase + "/";
+        log.info("Stockage des photos local : {} (URLs {})", racine, this.urlBase);
+    }
+
+    @Override
+    public boolean enregistrer(String nom, Path source) throws IOException {
+        Path cible = chemin(nom);
+        if (Files.exists(cible)) {
+            // Réutilisation : la date rafraîchie protège le fichier du nettoyage
+            // pendant le délai de grâce, le temps que l'incident soit enregistré
+            Files.setLastModifiedTime(cible, FileTime.from(Instant.now()));
+            Files.deleteIfExists(source);
+            return false;
+        }
+        Files.createDirectories(cible.getParent());
+        Files.move(source, cible, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    @Override
+    public boolean existe(String nom) {
+        return Files.exists(chemin(nom)) || Files.exists(cheminRacine(nom));
+    }
+
+    @Override
+    public InputStream ouvrir(String nom) throws IOException {
+        return Files.newInputStream(resoudre(nom));
+    }
+
+    @Override
+    public void supprimer(String nom) throws IOException {
+        Files.deleteIfExists(chemin(nom));
+        Files.deleteIfExists(cheminRacine(nom));
+    }
+
+    @Override
+    public String getUrl(String nom) {
+        return urlBase + PhotoStorage.verifierNom(nom);
+    }
+
+    @Override
+    public Optional<Path> getCheminLocal(String nom) {
+        return Optional.of(resoudre(nom));
+    }
+
+    /**
+     * Racine du stockage (parcourue par le ramasse-miettes des photos)
+     */
+    public Path getRacine() {
+        return racine;
+    }
+
+    /**
+     * Emplacement partitionné si le fichier y est, sinon emplacement historique
+     * à la racine s'il existe, sinon emplacement partitionné
+     */
+    private Path resoudre(String nom) {
+        Path partitionne = chemin(nom);
+        if (!Files.exists(partitionne)) {
+            Path historique = cheminRacine(nom);
+            if (Files.exists(historique)) {
+                return historique;
+            }
+        }
+        return partitionne;
+    }
+
+    private Path chemin(String nom) {
+        PhotoStorage.verifierNom(nom);
+        if (!PREFIXE_HEXA.matcher(nom).find()) {
+            return racine.resolve(nom);
+        }
+        return racine.resolve(nom.substring(0, 2)).resolve(nom.substring(2, 4)).resolve(nom);
+    }
+
+    private Path cheminRacine(String nom) {
+        return racine.resolve(PhotoStorage.verifierNom(nom));
+    }
+}
@@ -0,0 +1,65 @@
+package ma.ehtp.geoinfo.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Backend de stockage des photos d'incidents
+ *
+ * Les photos sont identifiées par un nom plat (<sha256>.<ext>, variantes
+ * <sha256>_min.jpg...) ; chaque backend décide de l'emplacement physique et
+ * de l'URL publique. Implémentations sélectionnées par photos.stockage :
+ * - local : répertoire partitionné par préfixe (LocalPhotoStorage) ;
+ * - s3    : bucket compatible S3, AWS ou MinIO (S3PhotoStorage).
+ */
+public interface PhotoStorage {
+
+    /**
+     * Rend un fichier complet disponible sous un nom
+     * Le fichier source est consommé (déplacé ou supprimé après envoi)
+     *
+     * @param nom    Nom de la photo
+     * @param source Fichier temporaire local contenant le contenu
+     * @return false si le nom existait déjà (contenu identique conservé)
+     */
+    boolean enregistrer(String nom, Path source) throws IOException;
+
+    /**
+     * Indique si une photo est stockée sous ce nom
+     */
+    boolean existe(String nom) throws IOException;
+
+    /**
+     * Ouvre le contenu d'une photo en lecture (à fermer par l'appelant)
+     */
+    InputStream ouvrir(String nom) throws IOException;
+
+    /**
+     * Supprime une photo (sans effet si elle n'existe pas)
+     */
+    void supprimer(String nom) throws IOException;
+
+    /**
+     * URL publique de la photo pour ce backend
+     */
+    String getUrl(String nom);
+
+    /**
+     * Chemin du fichier sur le disque local, si ce backend en a un
+     * (servi par FileController ; vide pour un stockage distant)
+     */
+    Optional<Path> getCheminLocal(String nom);
+
+    /**
+     * Refuse les noms qui pourraient sortir de l'espace de stockage
+     */
+    static String verifierNom(String nom) {
+        if (nom == null || nom.isEmpty() || nom.startsWith(".")
+                || nom.contains("/") || nom.contains("\\") || nom.contains("..")) {
+            throw new IllegalArgumentException("Nom de fichier invalide : " + nom);
+        }
+        return nom;
+    }
+}
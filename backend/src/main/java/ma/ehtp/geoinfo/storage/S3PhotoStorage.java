@@ -0,0 +1,172 @@
+package ma.ehtp.geoinfo.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Stockage des photos dans un bucket compatible S3 (AWS S3, MinIO...)
+ *
+ * Les nœuds du backend partagent le bucket : aucun état local hormis le
+ * fichier temporaire d'un dépôt en cours. Les objets sont publiés avec un
+ * Cache-Control immuable (un nom ne désigne qu'un contenu) et servis
+ * directement par le stockage ou un CDN via photos.s3.url-base.
+ *
+ * Test local : MinIO (photos.s3.endpoint=http://localhost:9000), le bucket
+ * est créé au démarrage s'il n'existe pas.
+ */
+@Component
+@ConditionalOnProperty(name = "photos.stockage", havingValue = "s3")
+@Slf4j
+public class S3PhotoStorage implements PhotoStorage {
+
+    private static final String CACHE_IMMUABLE = "public, max-age=31536000, immutable";
+
+    private final S3Client client;
+    private final String bucket;
+    private final String urlBase;
+
+    public S3PhotoStorage(@Value("${photos.s3.endpoint:}") String endpoint,
+            @Value("${photos.s3.region:us-east-1}") String region,
+            @Value("${photos.s3.bucket:geoinfo-photos}") String bucket,
+            @Value("${photos.s3.access-key:}") String accessKey,
+            @Value("${photos.s3.secret-key:}") String secretKey,
+            @Value("${photos.s3.url-base:}") String urlBase) {
+        AwsCredentialsProvider identifiants = accessKey.isBlank()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+
+        var builder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(identifiants);
+        if (!endpoint.isBlank()) {
+            // MinIO et la plupart des stockages compatibles : adressage par chemin
+            builder.endpointOverride(URI.create(endpoint)).forcePathStyle(true);
+        }
+        this.client = builder.build();
+        this.bucket = bucket;
+
+        String base = !urlBase.isBlank() ? urlBase
+                : !endpoint.isBlank() ? endpoint.replaceAll("/+$", "") + "/" + bucket + "/"
+                : "https://" + bucket + ".s3." + region + ".amazonaws.com/";
+        this.urlBase = base.endsWith("/") ? base : base + "/";
+        // FileController redirige /uploads/ vers cette base : elle y bouclerait
+        String chemin = URI.create(this.urlBase).getPath();
+        if (chemin != null && chemin.startsWith("/uploads/")) {
+            throw new IllegalStateException("photos.s3.url-base ne doit pas désigner /uploads/ du backend : "
+                    + this.urlBase);
+        }
+        log.info("Stockage des photos S3 : bucket {} (URLs {})", bucket, this.urlBase);
+    }
+
+    /**
+     * Vérifie le bucket au démarrage et le crée s'il manque (MinIO de développement)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifierBucket() {
+        try {
+            client.headBucket(b -> b.bucket(bucket));
+        } catch (NoSuchBucketException e) {
+            log.warn("Bucket {} absent : création", bucket);
+            client.createBucket(b -> b.bucket(bucket));
+        } catch (S3Exception e) {
+            if (e.statusCode() != 404) {
+                log.error("Bucket {} inaccessible ({})", bucket, e.statusCode(), e);
+                return;
+            }
+            log.warn("Bucket {} absent : création", bucket);
+            client.createBucket(b -> b.bucket(bucket));
+        }
+    }
+
+    @Override
+    public boolean enregistrer(String nom, Path source) throws IOException {
+        try {
+            if (existe(nom)) {
+                return false;
+            }
+            String contentType = MediaTypeFactory.getMediaType(nom)
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+            client.putObject(b -> b.bucket(bucket).key(PhotoStorage.verifierNom(nom))
+                    .contentType(contentType)
+                    .cacheControl(CACHE_IMMUABLE),
+                    RequestBody.fromFile(source));
+            return true;
+        } catch (S3Exception e) {
+            throw new IOException("Envoi de " + nom + " vers S3 impossible", e);
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    @Override
+    public boolean existe(String nom) throws IOException {
+        try {
+            client.headObject(b -> b.bucket(bucket).key(PhotoStorage.verifierNom(nom)));
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("Lecture des métadonnées de " + nom + " impossible", e);
+        }
+    }
+
+    @Override
+    public InputStream ouvrir(String nom) throws IOException {
+        try {
+            return client.getObject(b -> b.bucket(bucket).key(PhotoStorage.verifierNom(nom)));
+        } catch (S3Exception e) {
+            throw new IOException("Lecture de " + nom + " depuis S3 impossible", e);
+        }
+    }
+
+    @Override
+    public void supprimer(String nom) throws IOException {
+        try {
+            client.deleteObject(b -> b.bucket(bucket).key(PhotoStorage.verifierNom(nom)));
+        } catch (S3Exception e) {
+            throw new IOException("Suppression de " + nom + " impossible", e);
+        }
+    }
+
+    @Override
+    public String getUrl(String nom) {
+        return urlBase + PhotoStorage.verifierNom(nom);
+    }
+
+    @Override
+    public Optional<Path> getCheminLocal(String nom) {
+        return Optional.empty();
+    }
+
+    @PreDestroy
+    public void fermer() {
+        client.close();
+    }
+}
@@ -0,0 +1,132 @@
+package ma.ehtp.geoinfo.util;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Document sérialisé une seule fois, conservé brut et précompressé en gzip,
+ * avec un ETag fort dérivé de son contenu (SHA-256)
+ *
+ * Les deux représentations ont chacune leur ETag fort (suffixe -gz pour gzip) :
+ * un cache partagé ne peut pas servir l'une à la place de l'autre.
+ *
+ * Destiné aux réponses volumineuses qui changent rarement (GeoJSON des provinces...)
+ */
+public final class DocumentCompresse {
+
+    private final byte[] brut;
+    private final byte[] gzip;
+    private final String etag;
+    private final String etagGzip;
+
+    private DocumentCompresse(byte[] brut, byte[] gzip, String empreinte) {
+        this.brut = brut;
+        this.gzip = gzip;
+        this.etag = "\"" + empreinte + "\"";
+        this.etagGzip = "\"" + empreinte + "-gz\"";
+    }
+
+    /**
+     * Compresse le document et calcule son ETag
+     *
+     * @param brut Contenu non compressé
+     * @return Document prêt à servir
+     */
+    public static DocumentCompresse of(byte[] brut) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(brut.length / 4, 32));
+            try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+                gz.write(brut);
+            }
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(brut);
+            return new DocumentCompresse(brut, out.toByteArray(), HexFormat.of().formatHex(hash, 0, 16));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Indique si l'en-tête If-None-Match du client désigne ce document
+     * (l'une ou l'autre de ses représentations)
+     *
+     * @param ifNoneMatch Valeur de l'en-tête (peut être null)
+     * @return true si une réponse 304 suffit
+     */
+    public boolean correspond(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String valeur : ifNoneMatch.split(",")) {
+            String tag = valeur.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag) || tag.equals(etagGzip)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Réponse HTTP du document : 304 si If-None-Match correspond, sinon le
+     * contenu gzip si le client l'accepte, brut dans le cas contraire
+     *
+     * @param type           Content-Type du document
+     * @param cacheControl   Politique de cache
+     * @param ifNoneMatch    En-tête If-None-Match (peut être null)
+     * @param acceptEncoding En-tête Accept-Encoding (peut être null)
+     * @return Réponse prête à renvoyer
+     */
+    public ResponseEntity<byte[]> reponse(MediaType type, CacheControl cacheControl,
+            String ifNoneMatch, String acceptEncoding) {
+        boolean compresse = acceptEncoding != null && acceptEncoding.contains("gzip");
+        if (correspond(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(compresse ? etagGzip : etag)
+                    .cacheControl(cacheControl)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.ok()
+                .contentType(type)
+                .eTag(compresse ? etagGzip : etag)
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (compresse) {
+            return reponse.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzip);
+        }
+        return reponse.body(brut);
+    }
+
+    public byte[] getBrut() {
+        return brut;
+    }
+
+    public byte[] getGzip() {
+        return gzip;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getEtagGzip() {
+        return etagGzip;
+    }
+}
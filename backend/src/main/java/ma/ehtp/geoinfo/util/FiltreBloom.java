@@ -0,0 +1,88 @@
+package ma.ehtp.geoinfo.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Filtre de Bloom de chaînes, de taille fixe
+ *
+ * Répond "absent" avec certitude et "présent" avec un taux de faux positifs
+ * borné par le dimensionnement : ~10 bits par élément pour 1 %, soit 1,2 Mo
+ * par million de noms au lieu d'une centaine de Mo pour un HashSet.
+ * Non thread-safe : rempli puis interrogé par le même thread.
+ */
+public final class FiltreBloom {
+
+    private final long[] bits;
+    private final long nombreBits;
+    private final int nombreHachages;
+
+    private FiltreBloom(long nombreBits, int nombreHachages) {
+        this.bits = new long[(int) ((nombreBits + 63) / 64)];
+        this.nombreBits = (long) bits.length * 64;
+        this.nombreHachages = nombreHachages;
+    }
+
+    /**
+     * Dimensionne le filtre pour un nombre d'éléments et un taux de faux positifs
+     *
+     * @param elementsAttendus Nombre d'éléments prévus (au moins 1)
+     * @param tauxFauxPositifs Taux visé (ex: 0.01)
+     * @return Filtre vide
+     */
+    public static FiltreBloom dimensionner(long elementsAttendus, double tauxFauxPositifs) {
+        long n = Math.max(1, elementsAttendus);
+        long m = (long) Math.ceil(-n * Math.log(tauxFauxPositifs) / (Math.log(2) * Math.log(2)));
+        int k = (int) Math.max(1, Math.round((double) m / n * Math.log(2)));
+        return new FiltreBloom(Math.max(64, m), k);
+    }
+
+    public void ajouter(String valeur) {
+        long h = hacher(valeur);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= nombreHachages; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % nombreBits;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * @return false si la valeur n'a certainement pas été ajoutée
+     */
+    public boolean contientPeutEtre(String valeur) {
+        long h = hacher(valeur);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= nombreHachages; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % nombreBits;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Taille du filtre en octets
+     */
+    public long getTailleOctets() {
+        return (long) bits.length * 8;
+    }
+
+    /**
+     * FNV-1a 64 bits sur l'UTF-8, suivi du brassage final de MurmurHash3
+     */
+    private static long hacher(String valeur) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : valeur.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53b1a85L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
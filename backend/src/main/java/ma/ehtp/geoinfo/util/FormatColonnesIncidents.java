@@ -0,0 +1,74 @@
+package ma.ehtp.geoinfo.util;
+
+import ma.ehtp.geoinfo.entity.Incident;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Encodage binaire en colonnes des marqueurs de la carte
+ * (type de contenu application/x-incident-columns)
+ *
+ * Format (little-endian, pour lecture directe par Int32Array/Int16Array/Int8Array) :
+ *
+ * <pre>
+ * offset          taille   contenu
+ * 0               4        magie ASCII "GIC1" (version 1)
+ * 4               4        int32  n = nombre d'incidents
+ * 8               4n       int32  identifiants
+ * 8 + 4n          4n       int32  latitudes  x 1e7 (arrondi)
+ * 8 + 8n          4n       int32  longitudes x 1e7 (arrondi)
+ * 8 + 12n         2n       int16  identifiants de secteur (-1 si aucun)
+ * 8 + 14n         n        int8   statut (rang dans Incident.StatutIncident :
+ *                                 0 REDIGE, 1 VALIDE, 2 REJETE, 3 PRIS_EN_COMPTE,
+ *                                 4 EN_COURS_DE_TRAITEMENT, 5 TRAITE, 6 BLOQUE,
+ *                                 7 REDIRIGE)
+ * </pre>
+ *
+ * Les colonnes int32 commencent sur des offsets multiples de 4 et la colonne
+ * int16 sur un offset pair : le client peut créer ses vues typées sans copie.
+ * Précision des coordonnées : 1e-7 degré (~1 cm).
+ */
+public final class FormatColonnesIncidents {
+
+    public static final String MEDIA_TYPE = "application/x-incident-columns";
+
+    private static final byte[] MAGIE = "GIC1".getBytes(StandardCharsets.US_ASCII);
+    private static final double ECHELLE = 1e7;
+
+    private FormatColonnesIncidents() {
+    }
+
+    /**
+     * Encode les marqueurs
+     *
+     * @param points Tuples [id, longitude, latitude, statut, secteurId]
+     *               (IncidentRepository.findPointsCarte)
+     * @return Contenu binaire
+     */
+    public static byte[] encoder(List<Object[]> points) {
+        int n = points.size();
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 15 * n).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIE).putInt(n);
+
+        for (Object[] point : points) {
+            buffer.putInt(((Number) point[0]).intValue());
+        }
+        for (Object[] point : points) {
+            buffer.putInt((int) Math.round(((Number) point[2]).doubleValue() * ECHELLE));
+        }
+        for (Object[] point : points) {
+            buffer.putInt((int) Math.round(((Number) point[1]).doubleValue() * ECHELLE));
+        }
+        for (Object[] point : points) {
+            buffer.putShort(point[4] != null ? ((Number) point[4]).shortValue() : -1);
+        }
+        for (Object[] point : points) {
+            buffer.put((byte) Incident.StatutIncident.valueOf((String) point[3]).ordinal());
+        }
+
+        return buffer.array();
+    }
+}
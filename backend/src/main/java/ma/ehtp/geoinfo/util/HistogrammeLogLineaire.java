@@ -0,0 +1,121 @@
+package ma.ehtp.geoinfo.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogramme log-linéaire à mémoire bornée (principe HdrHistogram)
+ *
+ * Les valeurs entières positives sont rangées dans 16 sous-intervalles par
+ * puissance de 2 : l'erreur relative des quantiles reste inférieure à 1/16
+ * (~6%) quelle que soit la valeur, pour 272 compteurs au total.
+ * Les valeurs au-delà de VALEUR_MAX sont ramenées à VALEUR_MAX.
+ *
+ * Enregistrement thread-safe et sans verrou (AtomicLongArray).
+ */
+public class HistogrammeLogLineaire {
+
+    private static final int BITS_SOUS_BUCKETS = 4;
+    private static final int SOUS_BUCKETS = 1 << BITS_SOUS_BUCKETS; // 16
+    private static final int MAGNITUDES = 20;
+
+    /**
+     * Plus grande valeur distinguée (2^20 - 1, soit ~2 ans en minutes)
+     */
+    public static final long VALEUR_MAX = (1L << MAGNITUDES) - 1;
+
+    /**
+     * Nombre total de compteurs
+     */
+    public static final int TAILLE = SOUS_BUCKETS + (MAGNITUDES - BITS_SOUS_BUCKETS) * SOUS_BUCKETS;
+
+    private final AtomicLongArray compteurs = new AtomicLongArray(TAILLE);
+
+    /**
+     * Enregistre une valeur (les valeurs négatives sont ramenées à 0)
+     */
+    public void enregistrer(long valeur) {
+        compteurs.incrementAndGet(index(valeur));
+    }
+
+    /**
+     * Remet tous les compteurs à zéro
+     */
+    public void reinitialiser() {
+        for (int i = 0; i < TAILLE; i++) {
+            compteurs.set(i, 0);
+        }
+    }
+
+    /**
+     * Ajoute les compteurs de cet histogramme au tableau cumulé
+     *
+     * @param cumul Tableau de taille TAILLE
+     */
+    public void ajouterA(long[] cumul) {
+        for (int i = 0; i < TAILLE; i++) {
+            cumul[i] += compteurs.get(i);
+        }
+    }
+
+    /**
+     * Index du compteur pour une valeur
+     */
+    static int index(long valeur) {
+        long v = Math.max(0, Math.min(valeur, VALEUR_MAX));
+        if (v < SOUS_BUCKETS) {
+            return (int) v;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(v); // >= BITS_SOUS_BUCKETS
+        int decalage = magnitude - BITS_SOUS_BUCKETS;
+        int sousBucket = (int) (v >> decalage) - SOUS_BUCKETS;
+        return SOUS_BUCKETS + decalage * SOUS_BUCKETS + sousBucket;
+    }
+
+    /**
+     * Valeur représentative (milieu) du compteur d'index donné
+     */
+    static double valeurMediane(int index) {
+        if (index < SOUS_BUCKETS) {
+            return index;
+        }
+        int decalage = (index - SOUS_BUCKETS) / SOUS_BUCKETS;
+        int sousBucket = (index - SOUS_BUCKETS) % SOUS_BUCKETS;
+        long borneBasse = (long) (SOUS_BUCKETS + sousBucket) << decalage;
+        long largeur = 1L << decalage;
+        return borneBasse + (largeur - 1) / 2.0;
+    }
+
+    /**
+     * Nombre total de valeurs d'un tableau cumulé
+     */
+    public static long total(long[] cumul) {
+        long total = 0;
+        for (long c : cumul) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * Calcule un quantile sur un tableau cumulé
+     *
+     * @param cumul    Compteurs (voir ajouterA)
+     * @param quantile Quantile entre 0 et 1 (ex: 0.9)
+     * @return Valeur approchée, ou null si le tableau est vide
+     */
+    public static Double quantile(long[] cumul, double quantile) {
+        long total = total(cumul);
+        if (total == 0) {
+            return null;
+        }
+        long rang = Math.max(1, (long) Math.ceil(quantile * total));
+        long vus = 0;
+        for (int i = 0; i < cumul.length; i++) {
+            vus += cumul[i];
+            if (vus >= rang) {
+                return valeurMediane(i);
+            }
+        }
+        return valeurMediane(cumul.length - 1);
+    }
+}
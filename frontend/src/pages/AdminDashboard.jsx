@@ -3,6 +3,7 @@ import { useSearchParams } from 'react-router-dom';
 import { useAuth } from '../contexts/AuthContext';
 import { adminAPI, secteursAPI } from '../services/api';
 import { formatDate } from '../utils/formatters';
+import { getPhotoWeb, basculerSurOriginale } from '../utils/photos';
 import LoadingSpinner from '../components/LoadingSpinner';
 import {
   Shield,
@@ -1532,12 +1533,13 @@ const DetailsModal = ({ incident, onClose, onValider, onRejeter }) => {
               </h3>
               <div style={{ textAlign: 'center' }}>
                 <img
-                  src={incident.photoUrl.startsWith('http')
-                    ? incident.photoUrl
-                    : `http://localhost:8085${incident.photoUrl}`}
+                  src={getPhotoWeb(incident)}
                   alt="Photo de l'incident"
                   style={modalStyles.photo}
                   onError={(e) => {
+                    if (basculerSurOriginale(e, incident)) {
+                      return;
+                    }
                     console.error('Erreur chargement image:', incident.photoUrl);
                     e.currentTarget.style.display = 'none';
                     e.currentTarget.parentElement.innerHTML = '<p style="color: #ef4444;">❌ Image non disponible</p>';
@@ -32,6 +32,7 @@ import {
 import { format } from 'date-fns';
 import { fr } from 'date-fns/locale';
 import { SECTEURS } from '../data/constants';
+import { getPhotoWeb, basculerSurOriginale } from '../utils/photos';
 
 /**
  * Page de Gestion des Incidents pour Professionnels - Design Professionnel
@@ -1016,7 +1017,7 @@ const GestionIncidentsPro = () => {
                     boxShadow: '0 0 20px rgba(59, 130, 246, 0.1)'
                   }}>
                     <img
-                      src={selectedIncident.photoUrl}
+                      src={getPhotoWeb(selectedIncident)}
                       alt="Photo de l'incident"
                       style={{
                         width: '100%',
@@ -1026,6 +1027,9 @@ const GestionIncidentsPro = () => {
                         display: 'block'
                       }}
                       onError={(e) => {
+                        if (basculerSurOriginale(e, selectedIncident)) {
+                          return;
+                        }
                         e.target.style.display = 'none';
                         e.target.nextSibling.style.display = 'block';
                       }}
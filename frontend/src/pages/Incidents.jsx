@@ -32,6 +32,7 @@ import {
   STATUTS_INCIDENTS
 } from '../data/constants';
 import MultiSelectDropdown from '../components/MultiSelectDropdown';
+import { getPhotoWeb, basculerSurOriginale } from '../utils/photos';
 
 /**
  * Fonctions utilitaires
@@ -1246,7 +1247,7 @@ const Incidents = () => {
                   border: '1px solid #e2e8f0'
                 }}>
                   <img
-                    src={selectedIncident.photoUrl}
+                    src={getPhotoWeb(selectedIncident)}
                     alt="Photo de l'incident"
                     style={{
                       width: '100%',
@@ -1255,6 +1256,9 @@ const Incidents = () => {
                       display: 'block'
                     }}
                     onError={(e) => {
+                      if (basculerSurOriginale(e, selectedIncident)) {
+                        return;
+                      }
                       e.target.style.display = 'none';
                     }}
                   />
@@ -20,6 +20,7 @@ import { Link } from 'react-router-dom';
 import { useCitizenDeviceId } from '../hooks/useCitizenDeviceId';
 import PWAGuard from '../components/PWAGuard';
 import { publicAPI } from '../services/api';
+import { getPhotoMiniature, basculerSurOriginale } from '../utils/photos';
 
 /**
  * Page "Mes Incidents" - Suivi citoyen anonyme
@@ -683,8 +684,10 @@ const MesIncidents = () => {
                                     {incident.photoUrl && (
                                         <div style={{ marginBottom: '1rem' }}>
                                             <img
-                                                src={incident.photoUrl}
+                                                src={getPhotoMiniature(incident)}
                                                 alt="Photo incident"
+                                                loading="lazy"
+                                                onError={(e) => basculerSurOriginale(e, incident)}
                                                 style={{
                                                     width: '100%',
                                                     maxHeight: '200px',
@@ -10,6 +10,7 @@ import {
   Users
 } from 'lucide-react';
 import { adminAPI } from '../../services/api';
+import { getPhotoMiniature, getPhotoWeb, basculerSurOriginale } from '../../utils/photos';
 import './GestionIncidents.css';
 
 const GestionIncidents = () => {
@@ -231,7 +232,12 @@ const GestionIncidents = () => {
 
                   {incident.photoUrl && (
                     <div className="incident-photo">
-                      <img src={incident.photoUrl} alt="Incident" />
+                      <img
+                        src={getPhotoMiniature(incident)}
+                        alt="Incident"
+                        loading="lazy"
+                        onError={(e) => basculerSurOriginale(e, incident)}
+                      />
                     </div>
                   )}
                 </div>
@@ -402,7 +408,11 @@ const GestionIncidents = () => {
                     <h3>📷 Photo de l'incident</h3>
                     <div className="detail-group">
                       <div className="incident-photo-large">
-                        <img src={selectedIncident.photoUrl} alt="Incident" />
+                        <img
+                          src={getPhotoWeb(selectedIncident)}
+                          alt="Incident"
+                          onError={(e) => basculerSurOriginale(e, selectedIncident)}
+                        />
                       </div>
                     </div>
                   </div>
@@ -0,0 +1,57 @@
+/**
+ * Utilitaires d'affichage des photos d'incidents
+ * Le backend expose la photo originale (photoUrl) et ses variantes générées
+ * en arrière-plan : miniature (photoMiniatureUrl) et web (photoWebUrl).
+ * Une variante pas encore générée vaut null : on retombe sur l'originale.
+ */
+
+const API_BASE_URL = import.meta.env.VITE_API_BASE_URL || 'http://localhost:8085/api';
+
+// Origine du backend, pour les URLs relatives (/uploads/...)
+const BACKEND_ORIGIN = API_BASE_URL.replace(/\/api\/?$/, '');
+
+/**
+ * Rend absolue une URL de photo relative au backend
+ * @param {string} url - URL absolue ou relative
+ * @returns {string|null} URL utilisable dans un <img>
+ */
+export const resolvePhotoUrl = (url) => {
+  if (!url) {
+    return null;
+  }
+  if (/^(https?:|blob:|data:)/i.test(url)) {
+    return url;
+  }
+  return `${BACKEND_ORIGIN}${url.startsWith('/') ? '' : '/'}${url}`;
+};
+
+/**
+ * Photo pour les listes et cartes : miniature, sinon variante web, sinon originale
+ * @param {Object} incident - Incident (IncidentResponse)
+ * @returns {string|null} URL de la photo
+ */
+export const getPhotoMiniature = (incident) =>
+  resolvePhotoUrl(incident?.photoMiniatureUrl || incident?.photoWebUrl || incident?.photoUrl);
+
+/**
+ * Photo pour les vues détaillées : variante web, sinon originale
+ * @param {Object} incident - Incident (IncidentResponse)
+ * @returns {string|null} URL de la photo
+ */
+export const getPhotoWeb = (incident) =>
+  resolvePhotoUrl(incident?.photoWebUrl || incident?.photoUrl);
+
+/**
+ * Gestionnaire onError : recharge la photo originale si la variante est introuvable
+ * @param {Event} event - Événement d'erreur de l'<img>
+ * @param {Object} incident - Incident (IncidentResponse)
+ * @returns {boolean} true si l'originale a été substituée
+ */
+export const basculerSurOriginale = (event, incident) => {
+  const originale = resolvePhotoUrl(incident?.photoUrl);
+  if (originale && event.currentTarget.src !== originale) {
+    event.currentTarget.src = originale;
+    return true;
+  }
+  return false;
+};
@@ -0,0 +1,36 @@
+-- Migration : Index spatiaux PostGIS
+-- Objectif : Requêtes carte par emprise (bbox) sans parcours complet de la table
+-- NOTE : Ces instructions sont aussi exécutées au démarrage par SpatialSchemaInitializer
+
+-- Index GiST sur la géométrie des incidents (opérateur && / ST_MakeEnvelope)
+CREATE INDEX IF NOT EXISTS idx_incident_location
+ON incidents USING GIST (location);
+
+-- Index du curseur de synchronisation incrémentale de la carte (since=)
+CREATE INDEX IF NOT EXISTS idx_incident_modification
+ON incidents ((COALESCE(date_modification, date_declaration)), id);
+
+-- Géométries simplifiées des provinces par niveau de détail
+-- (remplie par l'application au démarrage et à chaque modification des provinces)
+CREATE TABLE IF NOT EXISTS province_simplifications (
+    province_id BIGINT NOT NULL REFERENCES provinces (id) ON DELETE CASCADE,
+    niveau SMALLINT NOT NULL,
+    geometry geometry(MultiPolygon, 4326) NOT NULL,
+    PRIMARY KEY (province_id, niveau)
+);
+
+-- Provinces découpées en petits polygones (ST_Subdivide) pour les tests d'inclusion
+-- (remplie par l'application au démarrage et à chaque modification des provinces)
+CREATE TABLE IF NOT EXISTS province_parts (
+    id BIGSERIAL PRIMARY KEY,
+    province_id BIGINT NOT NULL REFERENCES provinces (id) ON DELETE CASCADE,
+    geometry geometry(Geometry, 4326) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_province_parts_geometry
+ON province_parts USING GIST (geometry);
+
+-- Vérifier la création
+SELECT indexname, indexdef
+FROM pg_indexes
+WHERE tablename = 'incidents' AND indexname IN ('idx_incident_location', 'idx_incident_modification');